@@ -1,30 +1,103 @@
 import java.util.*; // import utilities
+import java.util.concurrent.*; // import concurrent collections
+import java.util.concurrent.atomic.*; // import atomic primitives
+import java.util.concurrent.locks.*; // import locks
+import java.util.function.*; // import functional interfaces
 enum SeatStatus{AVAILABLE,RESERVED,BOOKED} // define seat states
 class Seat{
     private String seatId; // unique seat id
-    private SeatStatus status; // current status
+    private static final AtomicReferenceFieldUpdater<Seat,SeatStatus> STATUS=AtomicReferenceFieldUpdater.newUpdater(Seat.class,SeatStatus.class,"status"); // CAS on status field
+    private volatile SeatStatus status; // current status
+    private SeatMap seatMap; // availability bitset notified on state change
+    private int index; // position of this seat within its show
     public Seat(String seatId){this.seatId=seatId;this.status=SeatStatus.AVAILABLE;} // constructor
     public String getSeatId(){return seatId;} // return seat id
     public SeatStatus getStatus(){return status;} // return seat status
-    public void reserve(){this.status=SeatStatus.RESERVED;} // mark as reserved
-    public void book(){this.status=SeatStatus.BOOKED;} // mark as booked
-    public void makeAvailable(){this.status=SeatStatus.AVAILABLE;} // reset seat
+    public int getIndex(){return index;} // return position within show
+    public void reserve(){setStatus(SeatStatus.RESERVED);} // mark as reserved
+    public void book(){setStatus(SeatStatus.BOOKED);} // mark as booked
+    public void makeAvailable(){setStatus(SeatStatus.AVAILABLE);} // reset seat
+    public boolean casStatus(SeatStatus expected,SeatStatus next){return STATUS.compareAndSet(this,expected,next);} // lock-free transition for ConcurrentShow, does not notify the seat map, so a show never has both kinds of service
+    void placeIn(SeatMap seatMap,int index){this.seatMap=seatMap;this.index=index;} // record owning seat map and index
+    private void setStatus(SeatStatus next){ // change status and keep the bitset in sync
+        boolean wasAvailable=status==SeatStatus.AVAILABLE; // availability before
+        this.status=next; // assign status
+        if(seatMap==null||wasAvailable==(next==SeatStatus.AVAILABLE))return; // availability unchanged
+        if(wasAvailable)seatMap.onTaken(index);else seatMap.onFreed(index); // flip bit
+    }
+}
+class SeatMap{ // availability of a show's seats as one long[] bitset per row, a set bit means AVAILABLE
+    private final List<Seat> seats; // seats in index order
+    private final int rowWidth; // seats per row
+    private final long[][] rows; // availability words per row
+    private final int[] freeInRow; // available seats per row
+    private int freeCount; // available seats in the show
+    public SeatMap(List<Seat> seats,int rowWidth){this(seats,rowWidth,true);} // attach seats so they keep the map in sync
+    private SeatMap(List<Seat> seats,int rowWidth,boolean attach){ // O(N)
+        if(rowWidth<=0)throw new IllegalArgumentException("Row width must be positive:"+rowWidth); // validation
+        this.seats=seats; // assign seats
+        this.rowWidth=rowWidth; // assign row width
+        int rowCount=(seats.size()+rowWidth-1)/rowWidth; // last row may be short
+        this.rows=new long[rowCount][(rowWidth+63)>>>6]; // words per row
+        this.freeInRow=new int[rowCount]; // counts per row
+        for(int i=0;attach&&i<seats.size();i++){ // index seats
+            Seat seat=seats.get(i); // seat at index
+            seat.placeIn(this,i); // let seat know its map and index
+            if(seat.getStatus()==SeatStatus.AVAILABLE)onFreed(i); // mark available
+        }
+    }
+    public int getRowCount(){return rows.length;} // return number of rows
+    public int getRowWidth(){return rowWidth;} // return seats per row
+    public int getWordsPerRow(){return rows.length==0?0:rows[0].length;} // return availability words per row
+    public int getFreeCount(){return freeCount;} // return available seats in show
+    public int getFreeInRow(int row){return freeInRow[row];} // return available seats in row
+    public Seat getSeat(int index){return seats.get(index);} // return seat at index
+    long[] words(int row){return rows[row];} // availability words of row, read by strategies
+    SeatMap detachedCopy(){return new SeatMap(seats,rowWidth,false);} // same layout, seats stay attached to this map
+    void load(AtomicLongArray bits){ // refresh a detached copy from a row-major concurrent bitset, O(words)
+        int words=getWordsPerRow(); // words per row
+        freeCount=0; // recount
+        for(int row=0;row<rows.length;row++){ // copy rows
+            int free=0; // available in row
+            for(int w=0;w<words;w++){long word=bits.get(row*words+w);rows[row][w]=word;free+=Long.bitCount(word);} // copy word and count
+            freeInRow[row]=free; // row count
+            freeCount+=free; // show count
+        }
+    }
+    void onTaken(int index){ // O(1)
+        int row=index/rowWidth,column=index%rowWidth; // locate seat
+        rows[row][column>>>6]&=~(1L<<column); // clear bit
+        freeInRow[row]--;freeCount--; // update counts
+    }
+    void onFreed(int index){ // O(1)
+        int row=index/rowWidth,column=index%rowWidth; // locate seat
+        rows[row][column>>>6]|=1L<<column; // set bit
+        freeInRow[row]++;freeCount++; // update counts
+    }
 }
 class Show{
     private String showId; // show identifier
     private long timestamp; // show start time epoch
     private List<Seat> seats; // seats for this show
     private Screen screen; // screen reference
-    public Show(String showId,long timestamp,List<Seat> seats,Screen screen){
+    private SeatMap seatMap; // seat availability bitset
+    private final AtomicReference<Object> service=new AtomicReference<>(); // the one BookMyShow or ConcurrentShow selling these seats
+    public Show(String showId,long timestamp,List<Seat> seats,Screen screen){this(showId,timestamp,seats,screen,Math.max(1,seats.size()));} // all seats in one row
+    public Show(String showId,long timestamp,List<Seat> seats,Screen screen,int seatsPerRow){
         this.showId=showId; // assign id
         this.timestamp=timestamp; // assign timestamp
         this.seats=seats; // assign seats
         this.screen=screen; // assign screen
+        this.seatMap=new SeatMap(seats,seatsPerRow); // index seats row by row
     }
     public String getShowId(){return showId;} // return id
     public long getTimestamp(){return timestamp;} // return timestamp
     public List<Seat> getSeats(){return seats;} // return seats
     public Screen getScreen(){return screen;} // return screen
+    public SeatMap getSeatMap(){return seatMap;} // return seat map
+    void attach(Object owner){ // BookMyShow keeps the seat map in sync, ConcurrentShow flips seats by CAS, mixing them lets the bitset drift
+        if(!service.compareAndSet(null,owner))throw new IllegalStateException("Show "+showId+" is already served by another booking service"); // one service per show
+    }
 }
 class Screen{
     private String screenId; // screen id
@@ -34,72 +107,522 @@ class Screen{
     public String getScreenId(){return screenId;} // return screen id
     public List<Show> getShows(){return shows;} // return shows
 }
-class Reservation{
+class Reservation extends TimerEntry{ // linked into the hold timer while unconfirmed
     private String reservationId; // reservation id
     private String userId; // user id
-    private Set<String> seatIds; // seat ids
-    public Reservation(String reservationId,String userId,Set<String> seatIds){
+    private int[] seatIndexes; // seat positions within the show
+    private long expiresAt; // hold deadline epoch millis
+    public Reservation(String reservationId,String userId,int[] seatIndexes,long expiresAt){
         this.reservationId=reservationId; // assign id
         this.userId=userId; // assign user
-        this.seatIds=seatIds; // assign seats
+        this.seatIndexes=seatIndexes; // assign seats
+        this.expiresAt=expiresAt; // assign deadline
     }
     public String getReservationId(){return reservationId;} // return id
-    public Set<String> getSeatIds(){return seatIds;} // return seat ids
+    public int[] getSeatIndexes(){return seatIndexes;} // return seat positions
+    public long getExpiresAt(){return expiresAt;} // return hold deadline
+}
+class TimerEntry{ // intrusive node of a TimingWheel slot list, no allocation to schedule or cancel
+    TimerEntry prev,next; // neighbours in slot list
+    long deadlineTick; // tick at which the entry fires
+    int slot=-1; // flattened level*64+slot, -1 when not scheduled
+    public boolean isScheduled(){return slot>=0;} // check if pending
+}
+class TimingWheel<E extends TimerEntry>{ // hierarchical timing wheel, 4 levels of 64 slots, O(1) schedule/cancel and amortized O(1) per tick
+    static final int SLOT_BITS=6; // 64 slots per level
+    static final int SLOTS=1<<SLOT_BITS; // slots per level
+    static final int LEVELS=4; // covers 64^4 ticks, later deadlines are re-placed when their slot cascades
+    private final long tickMillis; // tick granularity
+    private final TimerEntry[] slots; // slot list heads, level-major
+    private long currentTick; // next tick to process
+    private int size; // pending entries
+    public TimingWheel(long tickMillis,long nowMillis){
+        if(tickMillis<=0)throw new IllegalArgumentException("Tick must be positive:"+tickMillis); // validation
+        this.tickMillis=tickMillis; // assign tick
+        this.slots=new TimerEntry[LEVELS*SLOTS]; // all levels
+        this.currentTick=nowMillis/tickMillis; // start at current tick
+    }
+    public int size(){return size;} // return pending entries
+    public void schedule(E entry,long deadlineMillis){ // O(1)
+        if(entry.isScheduled())cancel(entry); // reschedule
+        entry.deadlineTick=Math.floorDiv(deadlineMillis,tickMillis)+(Math.floorMod(deadlineMillis,tickMillis)==0?0:1); // round up so entries never fire early, no overflow near Long.MAX_VALUE
+        place(entry); // link into slot
+        size++; // count entry
+    }
+    public boolean cancel(E entry){ // O(1)
+        if(!entry.isScheduled())return false; // not pending
+        unlink(entry); // remove from slot
+        size--; // uncount entry
+        return true; // cancelled
+    }
+    @SuppressWarnings("unchecked")
+    public void advance(long nowMillis,Consumer<E> onExpire){ // O(elapsed ticks + expired entries)
+        long nowTick=nowMillis/tickMillis; // last tick to process
+        if(size==0){currentTick=Math.max(currentTick,nowTick+1);return;} // nothing pending, jump ahead
+        for(;currentTick<=nowTick;currentTick++){ // process ticks in order
+            int index=(int)(currentTick&(SLOTS-1)); // level 0 slot
+            for(int level=1;index==0&&level<LEVELS;level++){ // level wrapped, move next coarser slot down
+                index=(int)((currentTick>>>(level*SLOT_BITS))&(SLOTS-1)); // slot of this level now due
+                cascade(level*SLOTS+index); // re-place its entries
+            }
+            TimerEntry entry=slots[(int)(currentTick&(SLOTS-1))]; // entries due this tick
+            while(entry!=null){ // expire them
+                TimerEntry next=entry.next; // keep link before unlinking
+                unlink(entry); // remove from slot
+                size--; // uncount entry
+                onExpire.accept((E)entry); // notify owner
+                entry=next; // next entry
+            }
+            if(size==0){currentTick=nowTick+1;return;} // nothing left, jump ahead
+        }
+    }
+    private void cascade(int slot){ // move entries of a coarse slot to finer levels
+        TimerEntry entry=slots[slot]; // slot list
+        slots[slot]=null; // detach list
+        while(entry!=null){ // re-place each entry
+            TimerEntry next=entry.next; // keep link
+            place(entry); // finer level now that time has moved on
+            entry=next; // next entry
+        }
+    }
+    private void place(TimerEntry entry){ // link entry into the slot matching its remaining delay
+        long deadline=Math.max(entry.deadlineTick,currentTick); // overdue entries fire on the next processed tick
+        long delay=deadline-currentTick; // ticks to wait
+        int level=0; // finest level first
+        while(level<LEVELS-1&&delay>=1L<<((level+1)*SLOT_BITS))level++; // coarsest level needed
+        if(delay>=1L<<(LEVELS*SLOT_BITS))deadline=currentTick+(1L<<(LEVELS*SLOT_BITS))-1; // beyond range, park in farthest slot
+        int slot=level*SLOTS+(int)((deadline>>>(level*SLOT_BITS))&(SLOTS-1)); // slot on that level
+        entry.slot=slot; // remember slot
+        entry.prev=null; // new head
+        entry.next=slots[slot]; // push front
+        if(entry.next!=null)entry.next.prev=entry; // link old head
+        slots[slot]=entry; // set head
+    }
+    private void unlink(TimerEntry entry){ // O(1)
+        if(entry.prev!=null)entry.prev.next=entry.next;else slots[entry.slot]=entry.next; // fix predecessor or head
+        if(entry.next!=null)entry.next.prev=entry.prev; // fix successor
+        entry.prev=entry.next=null; // clear links
+        entry.slot=-1; // mark unscheduled
+    }
 }
 interface SeatAllocationStrategy{
-    List<Seat> allocate(List<Seat> seats,int count); // allocation contract
-}
-class FirstAvailableStrategy implements SeatAllocationStrategy{
-    public List<Seat> allocate(List<Seat> seats,int count){ // O(N)
-        List<Seat> allocated=new ArrayList<>(); // store allocated seats
-        for(Seat seat:seats){ // iterate seats
-            if(seat.getStatus()==SeatStatus.AVAILABLE){ // check availability
-                allocated.add(seat); // add seat
-                if(allocated.size()==count)break; // stop if enough
+    int[] allocate(SeatMap seatMap,int count); // allocation contract, seat indexes or null
+}
+class FirstAvailableStrategy implements SeatAllocationStrategy{ // lowest available seats, possibly scattered
+    public int[] allocate(SeatMap seatMap,int count){ // O(R + words + K)
+        if(count<=0||seatMap.getFreeCount()<count)return null; // not enough seats
+        int[] allocated=new int[count]; // picked seat indexes
+        int picked=0; // seats picked so far
+        for(int row=0;picked<count;row++){ // rows in order, free count guarantees termination
+            if(seatMap.getFreeInRow(row)==0)continue; // skip full row
+            long[] words=seatMap.words(row); // availability of row
+            int base=row*seatMap.getRowWidth(); // index of first seat in row
+            for(int w=0;w<words.length&&picked<count;w++){ // scan words
+                for(long bits=words[w];bits!=0&&picked<count;bits&=bits-1)allocated[picked++]=base+(w<<6)+Long.numberOfTrailingZeros(bits); // lowest set bit each step
             }
         }
-        if(allocated.size()!=count)return null; // return null if insufficient
         return allocated; // return allocated seats
     }
 }
+class ContiguousBlockStrategy implements SeatAllocationStrategy{ // K adjacent seats in one row, lowest row then lowest seat
+    public int[] allocate(SeatMap seatMap,int count){ // O(R + words*min(K,64))
+        if(count<=0||count>seatMap.getRowWidth())return null; // block cannot fit in a row
+        for(int row=0;row<seatMap.getRowCount();row++){ // rows in order
+            if(seatMap.getFreeInRow(row)<count)continue; // row too full
+            long[] words=seatMap.words(row); // availability of row
+            int start=count<=64?findShortBlock(words,count):findLongBlock(words,count); // column of block start
+            if(start<0)continue; // no block in this row
+            int[] allocated=new int[count]; // picked seat indexes
+            int base=row*seatMap.getRowWidth()+start; // index of first seat in block
+            for(int i=0;i<count;i++)allocated[i]=base+i; // adjacent seats
+            return allocated; // return block
+        }
+        return null; // no row has a block
+    }
+    private static int findShortBlock(long[] words,int count){ // AND of shifted copies keeps bits that start a run of count
+        for(int w=0;w<words.length;w++){ // scan words
+            long current=words[w]; // word under test
+            if(current==0)continue; // no seat free here
+            long next=w+1<words.length?words[w+1]:0; // run may spill into next word
+            long starts=current; // candidate block starts
+            for(int shift=1;shift<count&&starts!=0;shift++)starts&=(current>>>shift)|(next<<(64-shift)); // seat start+shift must be free
+            if(starts!=0)return (w<<6)+Long.numberOfTrailingZeros(starts); // lowest start
+        }
+        return -1; // not found
+    }
+    private static int findLongBlock(long[] words,int count){ // walk runs of free seats with trailing-zero counts
+        int limit=words.length<<6; // bits in row
+        for(int from=0;from<limit;){ // next run starts at or after from
+            int start=nextBit(words,from,false); // first free seat
+            if(start<0)return -1; // no more free seats
+            int end=nextBit(words,start,true); // first taken seat after run
+            if(end<0)end=limit; // run reaches row end
+            if(end-start>=count)return start; // run is long enough
+            from=end; // continue after run
+        }
+        return -1; // not found
+    }
+    private static int nextBit(long[] words,int from,boolean clear){ // index of next set (or clear) bit at or after from, -1 if none
+        int w=from>>>6; // starting word
+        if(w>=words.length)return -1; // past the end
+        long word=(clear?~words[w]:words[w])&(-1L<<from); // ignore bits before from
+        while(word==0){ // skip uniform words
+            if(++w==words.length)return -1; // past the end
+            word=clear?~words[w]:words[w]; // next word
+        }
+        return (w<<6)+Long.numberOfTrailingZeros(word); // lowest matching bit
+    }
+}
 class BookMyShow{
+    static final long DEFAULT_HOLD_MILLIS=10*60*1000L; // unconfirmed holds last ten minutes
+    static final long HOLD_TICK_MILLIS=100L; // hold timer granularity
     private Show show; // show reference
     private Map<String,Reservation> reservations; // active reservations
     private SeatAllocationStrategy strategy; // seat strategy
-    public BookMyShow(Show show){
+    private long holdMillis; // default hold ttl
+    private LongSupplier clock; // epoch millis source
+    private TimingWheel<Reservation> holds; // expiry of unconfirmed reservations
+    public BookMyShow(Show show){this(show,new FirstAvailableStrategy());} // default strategy
+    public BookMyShow(Show show,SeatAllocationStrategy strategy){this(show,strategy,DEFAULT_HOLD_MILLIS,System::currentTimeMillis);} // default hold and wall clock
+    public BookMyShow(Show show,SeatAllocationStrategy strategy,long holdMillis,LongSupplier clock){ // the show must not be served by any other BookMyShow, ConcurrentShow or BookingService
+        if(holdMillis<=0)throw new IllegalArgumentException("Hold must be positive:"+holdMillis); // validation
+        show.attach(this); // sole owner of the seats
         this.show=show; // assign show
         this.reservations=new HashMap<>(); // initialize map
-        this.strategy=new FirstAvailableStrategy(); // set default strategy
+        this.strategy=strategy; // set strategy
+        this.holdMillis=holdMillis; // assign ttl
+        this.clock=clock; // assign clock
+        this.holds=new TimingWheel<>(HOLD_TICK_MILLIS,clock.getAsLong()); // hold timer
     }
-    public synchronized String reserve(String userId,int seatCount){ // O(N)
-        List<Seat> allocated=strategy.allocate(show.getSeats(),seatCount); // allocate seats
+    public synchronized String reserve(String userId,int seatCount){return reserve(userId,seatCount,holdMillis);} // default ttl
+    public synchronized String reserve(String userId,int seatCount,long ttlMillis){ // O(R + words + K)
+        if(ttlMillis<=0)throw new IllegalArgumentException("Hold must be positive:"+ttlMillis); // would expire on the next call
+        long now=clock.getAsLong(); // current time
+        holds.advance(now,this::release); // free abandoned seats first
+        SeatMap seatMap=show.getSeatMap(); // seat availability
+        int[] allocated=strategy.allocate(seatMap,seatCount); // allocate seats
         if(allocated==null)return "Not enough seats"; // insufficient seats
-        Set<String> seatIds=new HashSet<>(); // track seat ids
-        for(Seat seat:allocated){seat.reserve();seatIds.add(seat.getSeatId());} // mark seats reserved
+        for(int index:allocated)seatMap.getSeat(index).reserve(); // mark seats reserved
         String reservationId=UUID.randomUUID().toString(); // generate id
-        reservations.put(reservationId,new Reservation(reservationId,userId,seatIds)); // store reservation
+        Reservation reservation=new Reservation(reservationId,userId,allocated,ttlMillis>Long.MAX_VALUE-now?Long.MAX_VALUE:now+ttlMillis); // hold until deadline, huge ttls capped instead of wrapping negative
+        reservations.put(reservationId,reservation); // store reservation
+        holds.schedule(reservation,reservation.getExpiresAt()); // arm hold timer
         return reservationId; // return id
     }
+    public synchronized void expireHolds(){holds.advance(clock.getAsLong(),this::release);} // for a periodic ticker, O(elapsed ticks + expired)
+    public synchronized int pendingHolds(){return holds.size();} // return unconfirmed reservations
+    private void release(Reservation reservation){ // expired hold gives its seats back
+        for(int index:reservation.getSeatIndexes())show.getSeatMap().getSeat(index).makeAvailable(); // reset seat
+        reservations.remove(reservation.getReservationId()); // drop reservation
+    }
     public synchronized void confirm(String reservationId){ // O(K)
+        holds.advance(clock.getAsLong(),this::release); // expired holds cannot be confirmed
         Reservation reservation=reservations.get(reservationId); // fetch reservation
         if(reservation==null){System.out.println("Invalid reservation");return;} // validation
-        for(Seat seat:show.getSeats()){ // iterate seats
-            if(reservation.getSeatIds().contains(seat.getSeatId()))seat.book(); // mark booked
-        }
+        holds.cancel(reservation); // booked seats no longer expire
+        for(int index:reservation.getSeatIndexes())show.getSeatMap().getSeat(index).book(); // mark booked
         System.out.println("Booking confirmed"); // confirmation
     }
     public synchronized void cancel(String reservationId){ // O(K)
+        holds.advance(clock.getAsLong(),this::release); // expired holds are already released
         Reservation reservation=reservations.get(reservationId); // fetch reservation
         if(reservation==null){System.out.println("Invalid reservation");return;} // validation
-        for(Seat seat:show.getSeats()){ // iterate seats
-            if(reservation.getSeatIds().contains(seat.getSeatId()))seat.makeAvailable(); // reset seat
-        }
+        holds.cancel(reservation); // stop hold timer
+        for(int index:reservation.getSeatIndexes())show.getSeatMap().getSeat(index).makeAvailable(); // reset seat
         reservations.remove(reservationId); // remove reservation
         System.out.println("Reservation cancelled"); // confirmation
     }
 }
+class ConcurrentShow{ // one show served lock-free, seats claimed by CAS and bookings all-or-nothing
+    private final Show show; // show reference
+    private final SeatMap layout; // row geometry of the show
+    private final int wordsPerRow; // hint words per row
+    private final AtomicLongArray free; // row-major hint, a set bit means the seat is probably AVAILABLE
+    private final SeatAllocationStrategy strategy; // seat strategy run on a snapshot
+    private final ThreadLocal<SeatMap> snapshots; // per-thread detached view handed to the strategy
+    private final ConcurrentHashMap<String,Reservation> reservations; // active reservations
+    public ConcurrentShow(Show show,SeatAllocationStrategy strategy){ // the show must not be served by any other ConcurrentShow or BookMyShow
+        show.attach(this); // sole owner of the seats
+        this.show=show; // assign show
+        this.layout=show.getSeatMap(); // seats and rows
+        this.wordsPerRow=layout.getWordsPerRow(); // words per row
+        this.free=new AtomicLongArray(layout.getRowCount()*wordsPerRow); // hint bitset
+        this.strategy=strategy; // set strategy
+        this.snapshots=ThreadLocal.withInitial(layout::detachedCopy); // lazily per thread
+        this.reservations=new ConcurrentHashMap<>(); // init map
+        for(int index=0;index<show.getSeats().size();index++){ // seed hint
+            if(layout.getSeat(index).getStatus()==SeatStatus.AVAILABLE)setBit(index); // mark available
+        }
+    }
+    public Show getShow(){return show;} // return show
+    public Reservation getReservation(String reservationId){return reservations.get(reservationId);} // O(1)
+    public String reserve(String userId,int seatCount){ // lock-free, retries while other users win the same seats
+        SeatMap view=snapshots.get(); // thread-confined snapshot
+        while(true){ // each failed attempt means another booking made progress
+            view.load(free); // current availability
+            int[] allocated=strategy.allocate(view,seatCount); // candidate seats
+            if(allocated==null)return null; // not enough seats
+            if(!claim(allocated))continue; // lost a seat, rolled back, try again
+            for(int index:allocated)clearBit(index); // claimed seats leave the hint
+            String reservationId; // id of new reservation
+            Reservation reservation; // new reservation
+            do{ // ids are random so generation does not serialize users
+                reservationId=Long.toString(ThreadLocalRandom.current().nextLong()&Long.MAX_VALUE,36); // random id
+                reservation=new Reservation(reservationId,userId,allocated,Long.MAX_VALUE); // no hold expiry here
+            }while(reservations.putIfAbsent(reservationId,reservation)!=null); // retry on collision
+            return reservationId; // return id
+        }
+    }
+    public boolean confirm(String reservationId){ // O(K), serialized with cancel of the same reservation
+        return reservations.computeIfPresent(reservationId,(id,reservation)->{
+            for(int index:reservation.getSeatIndexes())layout.getSeat(index).casStatus(SeatStatus.RESERVED,SeatStatus.BOOKED); // held seats become booked
+            return reservation; // keep reservation
+        })!=null; // false if unknown
+    }
+    public boolean cancel(String reservationId){ // O(K)
+        Reservation reservation=reservations.remove(reservationId); // only one canceller wins
+        if(reservation==null)return false; // unknown or already cancelled
+        for(int index:reservation.getSeatIndexes()){ // give seats back
+            Seat seat=layout.getSeat(index); // held seat
+            if(!seat.casStatus(SeatStatus.RESERVED,SeatStatus.AVAILABLE))seat.casStatus(SeatStatus.BOOKED,SeatStatus.AVAILABLE); // held or booked by us
+            setBit(index); // visible again after the status flip
+        }
+        return true; // success
+    }
+    private boolean claim(int[] allocated){ // all-or-nothing CAS over the candidate seats
+        for(int i=0;i<allocated.length;i++){ // claim in order
+            Seat seat=layout.getSeat(allocated[i]); // candidate seat
+            if(seat.casStatus(SeatStatus.AVAILABLE,SeatStatus.RESERVED))continue; // claimed
+            repair(allocated[i]); // stale hint for the lost seat
+            for(int j=0;j<i;j++){ // roll back seats claimed so far
+                layout.getSeat(allocated[j]).casStatus(SeatStatus.RESERVED,SeatStatus.AVAILABLE); // release seat
+                setBit(allocated[j]); // another user's repair may have cleared it
+            }
+            return false; // conflict
+        }
+        return true; // every seat claimed
+    }
+    private void repair(int index){ // clear a stale bit without hiding a seat released meanwhile
+        clearBit(index); // seat was taken
+        if(layout.getSeat(index).getStatus()==SeatStatus.AVAILABLE)setBit(index); // released after our CAS, keep it visible
+    }
+    private int word(int index){return (index/layout.getRowWidth())*wordsPerRow+((index%layout.getRowWidth())>>>6);} // hint word of seat
+    private void setBit(int index){free.getAndAccumulate(word(index),1L<<(index%layout.getRowWidth()),(bits,mask)->bits|mask);} // atomic or
+    private void clearBit(int index){free.getAndAccumulate(word(index),1L<<(index%layout.getRowWidth()),(bits,mask)->bits&~mask);} // atomic and-not
+}
+class ShowShard{ // lock stripe owning the shows and screens whose ids hash here, readers never lock
+    final ReentrantLock lock=new ReentrantLock(); // serializes registration within the stripe
+    volatile Map<String,ConcurrentShow> shows=Collections.emptyMap(); // copy-on-write show index
+    volatile Map<String,List<Show>> screens=Collections.emptyMap(); // copy-on-write screen index
+}
+class BookingService{ // every show of a city, sharded by id, popular shows contend only on their seats
+    private final ShowShard[] shards; // lock stripes, power of two
+    private final SeatAllocationStrategy strategy; // seat strategy for every show
+    public BookingService(){this(4*Runtime.getRuntime().availableProcessors(),new FirstAvailableStrategy());} // default stripes and strategy
+    public BookingService(int shardCount,SeatAllocationStrategy strategy){
+        int size=Integer.highestOneBit(Math.max(1,shardCount-1))<<1; // round up to power of two
+        this.shards=new ShowShard[size]; // allocate stripes
+        for(int i=0;i<size;i++)shards[i]=new ShowShard(); // create stripe
+        this.strategy=strategy; // set strategy
+    }
+    private ShowShard shard(String key){int h=key.hashCode();return shards[(h^(h>>>16))&(shards.length-1)];} // spread hash over stripes
+    public boolean addShow(Show show){ // O(shows in stripe), registration is rare
+        ShowShard shard=shard(show.getShowId()); // show stripe
+        shard.lock.lock(); // enter stripe
+        try{
+            if(shard.shows.containsKey(show.getShowId()))return false; // ignore duplicate
+            Map<String,ConcurrentShow> shows=new HashMap<>(shard.shows); // copy
+            shows.put(show.getShowId(),new ConcurrentShow(show,strategy)); // add show
+            shard.shows=shows; // publish
+        }finally{shard.lock.unlock();} // leave stripe
+        if(show.getScreen()==null)return true; // no screen to index
+        ShowShard screenShard=shard(show.getScreen().getScreenId()); // screen stripe
+        screenShard.lock.lock(); // enter stripe
+        try{
+            Map<String,List<Show>> screens=new HashMap<>(screenShard.screens); // copy
+            List<Show> shows=new ArrayList<>(screens.getOrDefault(show.getScreen().getScreenId(),Collections.emptyList())); // copy list
+            shows.add(show); // add show
+            screens.put(show.getScreen().getScreenId(),Collections.unmodifiableList(shows)); // replace list
+            screenShard.screens=screens; // publish
+        }finally{screenShard.lock.unlock();} // leave stripe
+        return true; // success
+    }
+    public List<Show> getShows(String screenId){return shard(screenId).screens.getOrDefault(screenId,Collections.emptyList());} // O(1)
+    public ConcurrentShow getShow(String showId){return shard(showId).shows.get(showId);} // O(1), lock-free
+    public String reserve(String showId,String userId,int seatCount){ // null if show unknown or seats insufficient
+        ConcurrentShow show=getShow(showId); // route to show
+        return show==null?null:show.reserve(userId,seatCount); // optimistic reservation
+    }
+    public boolean confirm(String showId,String reservationId){ // O(K)
+        ConcurrentShow show=getShow(showId); // route to show
+        return show!=null&&show.confirm(reservationId); // book held seats
+    }
+    public boolean cancel(String showId,String reservationId){ // O(K)
+        ConcurrentShow show=getShow(showId); // route to show
+        return show!=null&&show.cancel(reservationId); // release seats
+    }
+}
+class BookingStress{ // many users hammer one show, comparing BookingService with the synchronized BookMyShow
+    static void run(int seatCount,int perBooking,long millis){
+        holdDeadlines(); // regression for ttls that wrapped into already expired holds
+        sharedShow(); // regression for a seat map drifting under two services
+        int maxThreads=Math.max(2,Runtime.getRuntime().availableProcessors()); // up to core count
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence BookMyShow logging
+        try{
+            double base=0; // single user throughput of BookingService
+            for(int threads=1;threads<=maxThreads;threads*=2){ // double users each round
+                BookingService service=new BookingService(); // fresh service
+                Show show=BookMyShowBench.buildShow(seatCount,40); // show everyone wants
+                service.addShow(show); // register show
+                ConcurrentShow target=service.getShow(show.getShowId()); // routed show
+                AtomicIntegerArray holders=new AtomicIntegerArray(seatCount); // users per seat seen by threads
+                AtomicInteger violations=new AtomicInteger(); // double assignments observed
+                long ops=drive(threads,millis,seatCount/perBooking/threads,()->service.reserve(show.getShowId(),"U",perBooking),id->{
+                    for(int index:target.getReservation(id).getSeatIndexes())if(holders.incrementAndGet(index)!=1)violations.incrementAndGet(); // someone else already there
+                },id->{
+                    for(int index:target.getReservation(id).getSeatIndexes())holders.decrementAndGet(index); // release before cancel
+                    if(!service.cancel(show.getShowId(),id))violations.incrementAndGet(); // reservation must be valid
+                }); // optimistic service
+                if(target.reserve("U",seatCount)==null)violations.incrementAndGet(); // every seat must be free and visible again
+                BookMyShow locked=new BookMyShow(BookMyShowBench.buildShow(seatCount,40)); // single-lock baseline
+                long lockedOps=drive(threads,millis,seatCount/perBooking/threads,()->{String id=locked.reserve("U",perBooking);return id.startsWith("Not")?null:id;},id->{},locked::cancel); // baseline
+                double perSec=ops*1000.0/millis,lockedPerSec=lockedOps*1000.0/millis; // throughput
+                if(threads==1)base=perSec; // baseline
+                out.printf("users=%d ops/s=%.0f speedup=%.2f synchronized ops/s=%.0f violations=%d%n",threads,perSec,perSec/base,lockedPerSec,violations.get()); // report
+                if(violations.get()>0)throw new IllegalStateException("Seat double-assigned under "+threads+" users"); // fail loudly
+            }
+        }finally{System.setOut(out);} // restore console
+    }
+    static void sharedShow(){ // a show wrapped by both kinds of service would hand out booked seats
+        Show show=BookMyShowBench.buildShow(8,8); // one row
+        new BookMyShow(show); // first service owns the seats
+        try{new BookingService().addShow(show);throw new IllegalStateException("Show wrapped by two services");}catch(IllegalStateException expected){if(!expected.getMessage().contains("already served"))throw expected;} // must be refused
+    }
+    static void holdDeadlines(){ // non-positive ttls are refused, huge ones hold instead of expiring at once
+        long[] now={1_000_000L}; // manual clock
+        BookMyShow service=new BookMyShow(BookMyShowBench.buildShow(8,8),new FirstAvailableStrategy(),60_000L,()->now[0]); // one row
+        for(long ttl:new long[]{0,-1,Long.MIN_VALUE}){ // would expire on the next call
+            try{service.reserve("U",1,ttl);throw new IllegalStateException("Hold accepted with ttl "+ttl);}catch(IllegalArgumentException expected){} // must be refused
+        }
+        service.reserve("U",1,Long.MAX_VALUE);service.reserve("U",1,Long.MAX_VALUE-now[0]+1); // past the end of time
+        now[0]+=1_000_000L;service.expireHolds(); // time moves on
+        if(service.pendingHolds()!=2)throw new IllegalStateException("Huge hold expired at once"); // fail loudly
+    }
+    private static long drive(int threads,long millis,int holdLimit,Supplier<String> reserve,Consumer<String> onReserved,Consumer<String> release){ // reserve/cancel round trips until deadline
+        AtomicLong ops=new AtomicLong(); // completed reserve+cancel pairs
+        long deadline=System.nanoTime()+millis*1_000_000L; // stop time
+        List<Thread> users=new ArrayList<>(); // user threads
+        for(int t=0;t<threads;t++){ // start users
+            Thread thread=new Thread(()->{
+                ArrayDeque<String> held=new ArrayDeque<>(); // reservations this user holds
+                long done=0; // local counter
+                while(System.nanoTime()<deadline){ // run until deadline
+                    String id=reserve.get(); // try to grab seats
+                    if(id!=null){onReserved.accept(id);held.addLast(id);} // keep it for a while
+                    if(held.size()>holdLimit||(held.size()>0&&id==null)){release.accept(held.pollFirst());done++;} // give back oldest
+                }
+                while(!held.isEmpty())release.accept(held.pollFirst()); // leave show clean
+                ops.addAndGet(done); // publish count
+            });
+            users.add(thread); // keep handle
+            thread.start(); // launch
+        }
+        for(Thread thread:users){try{thread.join();}catch(InterruptedException e){Thread.currentThread().interrupt();break;}} // wait for users
+        return ops.get(); // total round trips
+    }
+}
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
+    }
+}
+class BookMyShowBench{ // java BookMyShow.java bench [seatsPerShow] [seatsPerBooking] [ops] [seatsPerRow] [outstandingHolds]
+    static Show buildShow(int seatCount,int seatsPerRow){ // fresh show with every seat available
+        List<Seat> seats=new ArrayList<>(); // seat list
+        for(int i=1;i<=seatCount;i++)seats.add(new Seat("S"+i)); // create seats
+        Screen screen=new Screen("Screen1"); // create screen
+        Show show=new Show("Show1",0L,seats,screen,seatsPerRow); // create show
+        screen.addShow(show); // attach show to screen
+        return show; // return show
+    }
+    static BookMyShow build(int seatCount,int seatsPerRow,SeatAllocationStrategy strategy){return new BookMyShow(buildShow(seatCount,seatsPerRow),strategy);} // service over a fresh show
+    static void run(String[] args){
+        int seatCount=Bench.param(args,1,2000); // seats per show
+        int perBooking=Bench.param(args,2,4); // seats per booking
+        int ops=Bench.param(args,3,100_000); // ops per pass
+        int seatsPerRow=Bench.param(args,4,40); // seats per row
+        int outstanding=Bench.param(args,5,1_000_000); // holds pending in the timer
+        for(SeatAllocationStrategy strategy:new SeatAllocationStrategy[]{new FirstAvailableStrategy(),new ContiguousBlockStrategy()}){ // scattered and adjacent
+            String name=strategy instanceof ContiguousBlockStrategy?"contiguous":"first"; // label
+            Bench.measure("BookMyShow "+name+" reserve+cancel",ops,()->{
+                BookMyShow service=build(seatCount,seatsPerRow,strategy); // empty show
+                return i->service.cancel(service.reserve("U"+(i&1023),perBooking)); // hold then release
+            });
+            Bench.measure("BookMyShow "+name+" reserve+cancel 90% sold",ops,()->{
+                BookMyShow service=build(seatCount,seatsPerRow,strategy); // fresh show
+                for(int i=0;i<seatCount*9/10/perBooking;i++)service.confirm(service.reserve("F"+i,perBooking)); // sell 90%
+                return i->service.cancel(service.reserve("U"+(i&1023),perBooking)); // hold then release
+            });
+            Bench.measure("BookMyShow "+name+" reserve+confirm",Math.min(ops,seatCount/perBooking),()->{
+                BookMyShow service=build(seatCount,seatsPerRow,strategy); // empty show
+                return i->service.confirm(service.reserve("U"+(i&1023),perBooking)); // sell until full
+            });
+        }
+        Bench.measure("BookingService reserve+cancel",ops,()->{
+            BookingService service=new BookingService(); // fresh service
+            Show show=buildShow(seatCount,seatsPerRow); // empty show
+            service.addShow(show); // register show
+            return i->service.cancel(show.getShowId(),service.reserve(show.getShowId(),"U",perBooking)); // hold then release
+        });
+        long[] now={0}; // simulated clock shared by the timer passes
+        long ttl=BookMyShow.DEFAULT_HOLD_MILLIS; // hold length
+        Bench.measure("TimingWheel schedule+cancel",ops,()->{
+            now[0]=0; // reset clock
+            TimingWheel<TimerEntry> wheel=new TimingWheel<>(BookMyShow.HOLD_TICK_MILLIS,0); // fresh wheel
+            for(int i=0;i<outstanding;i++)wheel.schedule(new TimerEntry(),(long)i*ttl/outstanding); // holds spread over one ttl
+            TimerEntry[] entries=new TimerEntry[1024]; // reused entries
+            for(int i=0;i<entries.length;i++)entries[i]=new TimerEntry(); // create entries
+            return i->{TimerEntry entry=entries[i&1023];wheel.schedule(entry,ttl+i);wheel.cancel(entry);}; // hold then confirm
+        });
+        Bench.measure("TimingWheel tick+rearm",ops,()->{
+            now[0]=0; // reset clock
+            TimingWheel<TimerEntry> wheel=new TimingWheel<>(BookMyShow.HOLD_TICK_MILLIS,0); // fresh wheel
+            for(int i=0;i<outstanding;i++)wheel.schedule(new TimerEntry(),(long)i*ttl/outstanding); // holds spread over one ttl
+            Consumer<TimerEntry> rearm=entry->wheel.schedule(entry,now[0]+ttl); // expired hold replaced by a new one
+            return i->wheel.advance(now[0]+=BookMyShow.HOLD_TICK_MILLIS,rearm); // one tick with the wheel kept full
+        });
+        Bench.measure("BookMyShow reserve+expire",ops,()->{
+            now[0]=0; // reset clock
+            BookMyShow service=new BookMyShow(buildShow(seatCount,seatsPerRow),new FirstAvailableStrategy(),1000,()->now[0]); // one second holds
+            return i->{service.reserve("U"+(i&1023),perBooking);now[0]+=1000/perBooking;}; // abandoned holds, timer frees seats
+        });
+    }
+}
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){BookMyShowBench.run(args);return;} // java BookMyShow.java bench
+        if(args.length>0&&"stress".equals(args[0])){BookingStress.run(2000,4,2000);return;} // java BookMyShow.java stress
         Screen screen1=new Screen("Screen1"); // create screen
 
         List<Seat> seats=new ArrayList<>(); // create seat list
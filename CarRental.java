@@ -1,93 +1,510 @@
 import java.util.*; // import utilities
+import java.util.concurrent.*; // import concurrent utilities
+import java.util.concurrent.atomic.*; // import atomic primitives
+import java.util.concurrent.locks.*; // import locks
+import java.util.function.*; // import functional interfaces
 class Car{
     String licensePlate; // unique id
     int costPerDay; // daily cost
     int freeKmsPerDay; // free kms per day(not charged)
     int costPerKm; // extra km cost
-    List<Booking> bookings; // bookings list
+    BookingIndex bookings; // bookings by day interval
+    final ReentrantLock lock=new ReentrantLock(); // guards bookings in ConcurrentCarRentalService
+    int slot=-1; // index into the service's FleetTariffs
     public Car(String licensePlate,int costPerDay,int freeKmsPerDay,int costPerKm){
         this.licensePlate=licensePlate; // assign id
         this.costPerDay=costPerDay; // assign cost
         this.freeKmsPerDay=freeKmsPerDay; // assign free kms
         this.costPerKm=costPerKm; // assign per km cost
-        this.bookings=new ArrayList<>(); // init booking list
+        this.bookings=new BookingIndex(); // init booking index
+    }
+    int tripCost(int days,int kms){ // day rate plus kms beyond the free allowance
+        int extraKms=Math.max(0,kms-days*freeKmsPerDay); // extra kms
+        return days*costPerDay+extraKms*costPerKm; // total cost
     }
 }
 class Booking{
     String orderId; // order id
-    int fromDay; // start day
-    int tillDay; // end day
+    Car car; // booked car
+    int fromDay; // start epoch day
+    int tillDay; // end epoch day
     int startOdometer; // start km
     boolean tripStarted; // flag
-    public Booking(String orderId,int fromDay,int tillDay){
+    long sequence; // insertion order in the car's BookingIndex, breaks fromDay ties
+    public Booking(String orderId,Car car,int fromDay,int tillDay){
         this.orderId=orderId; // assign id
+        this.car=car; // assign car
         this.fromDay=fromDay; // assign start
         this.tillDay=tillDay; // assign end
         this.tripStarted=false; // not started
     }
 }
+final class EpochDay{ // yyyy-mm-dd parsed straight to days since 1970-01-01, no allocation
+    private EpochDay(){} // static helpers only
+    static int parse(CharSequence date){ // O(1)
+        if(date==null||date.length()!=10||date.charAt(4)!='-'||date.charAt(7)!='-')throw new IllegalArgumentException("Invalid date:"+date); // shape check
+        int year=digits(date,0,4),month=digits(date,5,7),day=digits(date,8,10); // fields
+        if(month<1||month>12||day<1||day>lengthOfMonth(year,month))throw new IllegalArgumentException("Invalid date:"+date); // range check
+        return of(year,month,day); // convert
+    }
+    static int of(int year,int month,int day){ // days-from-civil on the proleptic Gregorian calendar
+        int y=month<=2?year-1:year; // year starting in March
+        int era=Math.floorDiv(y,400); // 400-year cycle
+        int yearOfEra=y-era*400; // [0,399]
+        int dayOfYear=(153*(month+(month>2?-3:9))+2)/5+day-1; // [0,365] from March 1st
+        int dayOfEra=yearOfEra*365+yearOfEra/4-yearOfEra/100+dayOfYear; // [0,146096]
+        return era*146097+dayOfEra-719468; // shift epoch to 1970-01-01
+    }
+    private static int lengthOfMonth(int year,int month){ // days in month
+        if(month==2)return (year%4==0&&(year%100!=0||year%400==0))?29:28; // leap rule
+        return month==4||month==6||month==9||month==11?30:31; // short and long months
+    }
+    private static int digits(CharSequence text,int from,int to){ // decimal field
+        int value=0; // accumulated value
+        for(int i=from;i<to;i++){ // parse digits
+            int digit=text.charAt(i)-'0'; // digit value
+            if(digit<0||digit>9)throw new IllegalArgumentException("Invalid date:"+text); // reject non-digits
+            value=value*10+digit; // accumulate
+        }
+        return value; // return field
+    }
+}
+class BookingIndex{ // interval treap keyed by fromDay then insertion order, each node knows the latest tillDay below it
+    private static final class Node{
+        final Booking booking; // indexed booking
+        final int priority; // random heap priority keeps the tree balanced
+        Node left,right; // children
+        int maxTill; // latest tillDay in this subtree
+        Node(Booking booking){this.booking=booking;this.priority=ThreadLocalRandom.current().nextInt();this.maxTill=booking.tillDay;} // leaf
+    }
+    private Node root; // tree root
+    private int size; // number of bookings
+    private long sequence; // next insertion number, makes every key unique
+    public int size(){return size;} // return number of bookings
+    public int latestTill(){return root==null?Integer.MIN_VALUE:root.maxTill;} // O(1), last booked day of the car
+    public void add(Booking booking){booking.sequence=sequence++;root=insert(root,new Node(booking));size++;} // O(log B) expected
+    public boolean overlaps(int fromDay,int tillDay){ // O(log B) expected, inclusive days
+        Node node=root; // start at root
+        while(node!=null&&node.maxTill>=fromDay){ // nothing below ends on or after fromDay otherwise
+            if(node.booking.fromDay<=tillDay&&fromDay<=node.booking.tillDay)return true; // overlap found
+            if(node.left!=null&&node.left.maxTill>=fromDay)node=node.left; // any overlap is on the left, or none exists
+            else if(node.booking.fromDay<=tillDay)node=node.right; // right subtree may still start in range
+            else return false; // later bookings start after tillDay
+        }
+        return false; // free
+    }
+    public void updateTill(Booking booking,int tillDay){ // O(log B) expected, fromDay stays the key
+        booking.tillDay=tillDay; // move end
+        refresh(root,booking); // fix subtree maxima on the path
+    }
+    public void forEach(Consumer<Booking> action){visit(root,action);} // in fromDay order
+    private static boolean refresh(Node node,Booking booking){ // recompute maxima on the path to booking
+        if(node==null)return false; // not in tree
+        boolean found=node.booking==booking||refresh(before(booking,node.booking)?node.left:node.right,booking); // keys are unique, one path
+        if(found)update(node); // recompute on the way up
+        return found; // propagate
+    }
+    private static void visit(Node node,Consumer<Booking> action){ // in-order walk
+        if(node==null)return; // empty
+        visit(node.left,action); // earlier bookings
+        action.accept(node.booking); // this booking
+        visit(node.right,action); // later bookings
+    }
+    private static Node insert(Node node,Node leaf){ // treap insert with rotations
+        if(node==null)return leaf; // place leaf
+        if(before(leaf.booking,node.booking)){ // go left
+            node.left=insert(node.left,leaf); // insert below
+            if(node.left.priority>node.priority)node=rotateRight(node); // restore heap order
+        }else{ // go right
+            node.right=insert(node.right,leaf); // insert below
+            if(node.right.priority>node.priority)node=rotateLeft(node); // restore heap order
+        }
+        update(node); // recompute maximum
+        return node; // new subtree root
+    }
+    private static boolean before(Booking a,Booking b){return a.fromDay<b.fromDay||(a.fromDay==b.fromDay&&a.sequence<b.sequence);} // key order
+    private static Node rotateRight(Node node){Node left=node.left;node.left=left.right;left.right=node;update(node);return left;} // left child becomes root
+    private static Node rotateLeft(Node node){Node right=node.right;node.right=right.left;right.left=node;update(node);return right;} // right child becomes root
+    private static void update(Node node){ // maximum of node and children
+        int max=node.booking.tillDay; // own end
+        if(node.left!=null)max=Math.max(max,node.left.maxTill); // left subtree
+        if(node.right!=null)max=Math.max(max,node.right.maxTill); // right subtree
+        node.maxTill=max; // store
+    }
+}
+class FleetTariffs{ // car tariffs as parallel primitive arrays indexed by Car.slot
+    Car[] cars=new Car[16]; // car per slot, for availability
+    int[] costPerDay=new int[16]; // daily cost per slot
+    int[] freeKmsPerDay=new int[16]; // free kms per day per slot
+    int[] costPerKm=new int[16]; // extra km cost per slot
+    int size; // used slots
+    void add(Car car){ // amortized O(1)
+        if(size==cars.length){ // grow all columns together
+            int capacity=size*2; // double
+            cars=Arrays.copyOf(cars,capacity);costPerDay=Arrays.copyOf(costPerDay,capacity); // grow
+            freeKmsPerDay=Arrays.copyOf(freeKmsPerDay,capacity);costPerKm=Arrays.copyOf(costPerKm,capacity); // grow
+        }
+        cars[size]=car;costPerDay[size]=car.costPerDay;freeKmsPerDay[size]=car.freeKmsPerDay;costPerKm[size]=car.costPerKm; // fill columns
+        car.slot=size++; // car remembers its slot
+    }
+}
+class QuoteBatch{ // price of every (car, range, km) in a request, -1 where the car is not free for the range
+    private final String[] licensePlates; // quoted cars
+    private final int rangeCount; // date ranges per car
+    private final int kmCount; // km values per range
+    final int[] prices; // [car][range][km] flattened
+    QuoteBatch(String[] licensePlates,int rangeCount,int kmCount){
+        this.licensePlates=licensePlates; // assign cars
+        this.rangeCount=rangeCount; // assign ranges
+        this.kmCount=kmCount; // assign kms
+        this.prices=new int[licensePlates.length*rangeCount*kmCount]; // result grid
+    }
+    public int getCarCount(){return licensePlates.length;} // return number of cars
+    public String getLicensePlate(int car){return licensePlates[car];} // return plate of car
+    public int getPrice(int car,int range,int km){return prices[(car*rangeCount+range)*kmCount+km];} // O(1), -1 when not free
+}
+class QuoteTask extends RecursiveAction{ // prices a slice of cars, splitting large slices across the fork-join pool
+    private static final long serialVersionUID=1L; // ForkJoinTask is Serializable, tasks are never serialized
+    static final int LEAF_TUPLES=4096; // tuples priced by one task without splitting
+    private final FleetTariffs tariffs; // fleet tariffs
+    private final int[] slots; // tariff slot per quoted car, -1 if unknown
+    private final int[] fromDays,tillDays,kms; // ranges and km values
+    private final int[] prices; // output grid
+    private final int lo,hi; // car slice
+    QuoteTask(FleetTariffs tariffs,int[] slots,int[] fromDays,int[] tillDays,int[] kms,int[] prices,int lo,int hi){
+        this.tariffs=tariffs;this.slots=slots;this.fromDays=fromDays;this.tillDays=tillDays;this.kms=kms;this.prices=prices;this.lo=lo;this.hi=hi; // assign
+    }
+    protected void compute(){
+        int perCar=fromDays.length*kms.length; // tuples per car
+        if((long)(hi-lo)*perCar>LEAF_TUPLES&&hi-lo>1){ // too big for one task
+            int mid=(lo+hi)>>>1; // split cars
+            invokeAll(new QuoteTask(tariffs,slots,fromDays,tillDays,kms,prices,lo,mid),new QuoteTask(tariffs,slots,fromDays,tillDays,kms,prices,mid,hi)); // fork halves
+            return; // done
+        }
+        price(tariffs,slots,fromDays,tillDays,kms,prices,lo,hi); // leaf
+    }
+    static void price(FleetTariffs tariffs,int[] slots,int[] fromDays,int[] tillDays,int[] kms,int[] prices,int lo,int hi){ // O((hi-lo) x R x (log B + K))
+        int out=lo*fromDays.length*kms.length; // first output cell
+        for(int c=lo;c<hi;c++){ // each car
+            int slot=slots[c]; // tariff slot
+            BookingIndex bookings=slot<0?null:tariffs.cars[slot].bookings; // availability
+            int costPerDay=slot<0?0:tariffs.costPerDay[slot],freeKms=slot<0?0:tariffs.freeKmsPerDay[slot],costPerKm=slot<0?0:tariffs.costPerKm[slot]; // tariff columns
+            for(int r=0;r<fromDays.length;r++){ // each range
+                int from=fromDays[r],till=tillDays[r]; // range days
+                boolean free=bookings!=null&&till>=from&&(bookings.latestTill()<from||!bookings.overlaps(from,till)); // only free cars are quoted
+                int days=till-from+1; // inclusive days
+                for(int k=0;k<kms.length;k++)prices[out++]=free?days*costPerDay+Math.max(0,kms[k]-days*freeKms)*costPerKm:-1; // tripCost inlined over columns
+            }
+        }
+    }
+}
 class CarRentalService{
     private Map<String,Car> cars; // cars map
     private Map<String,Booking> bookings; // order map
+    private FleetTariffs tariffs; // tariffs for batch quotes
     public CarRentalService(){
         this.cars=new HashMap<>(); // init cars
         this.bookings=new HashMap<>(); // init bookings
+        this.tariffs=new FleetTariffs(); // init tariffs
     }
     public void addCar(String licensePlate,int costPerDay,int freeKmsPerDay,int costPerKm){ // O(1)
         if(cars.containsKey(licensePlate))return; // ignore duplicate
-        cars.put(licensePlate,new Car(licensePlate,costPerDay,freeKmsPerDay,costPerKm)); // add car
+        Car car=new Car(licensePlate,costPerDay,freeKmsPerDay,costPerKm); // create car
+        cars.put(licensePlate,car); // add car
+        tariffs.add(car); // add tariff columns
+    }
+    public int quote(String licensePlate,String fromDate,String tillDate,int expectedKms){ // O(log B), -1 when the car is not free
+        Car car=cars.get(licensePlate); // fetch car
+        if(car==null)return -1; // invalid car
+        int fromDay=parseDay(fromDate); // parse start day
+        int tillDay=parseDay(tillDate); // parse end day
+        if(tillDay<fromDay||car.bookings.overlaps(fromDay,tillDay))return -1; // not free
+        return car.tripCost(tillDay-fromDay+1,expectedKms); // price
+    }
+    public QuoteBatch quoteFleet(String[] fromDates,String[] tillDates,int[] expectedKms){ // every car of the fleet
+        String[] licensePlates=new String[tariffs.size]; // plates in slot order
+        for(int i=0;i<licensePlates.length;i++)licensePlates[i]=tariffs.cars[i].licensePlate; // collect plates
+        return quote(licensePlates,fromDates,tillDates,expectedKms); // quote them
+    }
+    public QuoteBatch quote(String[] licensePlates,String[] fromDates,String[] tillDates,int[] expectedKms){ // O(C x R x (log B + K)), parallel when large
+        if(fromDates.length!=tillDates.length)throw new IllegalArgumentException("Unpaired date ranges"); // validation
+        int[] fromDays=new int[fromDates.length],tillDays=new int[tillDates.length]; // ranges parsed once per batch
+        for(int r=0;r<fromDates.length;r++){fromDays[r]=parseDay(fromDates[r]);tillDays[r]=parseDay(tillDates[r]);} // parse ranges
+        int[] slots=new int[licensePlates.length]; // tariff slot per car
+        for(int c=0;c<licensePlates.length;c++){Car car=cars.get(licensePlates[c]);slots[c]=car==null?-1:car.slot;} // resolve cars once
+        QuoteBatch batch=new QuoteBatch(licensePlates,fromDays.length,expectedKms.length); // result grid
+        if(batch.prices.length<=QuoteTask.LEAF_TUPLES)QuoteTask.price(tariffs,slots,fromDays,tillDays,expectedKms,batch.prices,0,slots.length); // small batch inline
+        else ForkJoinPool.commonPool().invoke(new QuoteTask(tariffs,slots,fromDays,tillDays,expectedKms,batch.prices,0,slots.length)); // split across cores
+        return batch; // return prices
     }
 
-    public boolean bookCar(String orderId,String licensePlate,String fromDate,String tillDate){ // O(N)
+    public boolean bookCar(String orderId,String licensePlate,String fromDate,String tillDate){ // O(log B)
         if(bookings.containsKey(orderId))return false; // unique orderId
         Car car=cars.get(licensePlate); // fetch car
         if(car==null)return false; // invalid car
         int fromDay=parseDay(fromDate); // parse start day
         int tillDay=parseDay(tillDate); // parse end day
-        for(Booking b:car.bookings){ // check overlap
-            if(overlaps(fromDay,tillDay,b.fromDay,b.tillDay))return false; // overlap fail
-        }
-        Booking booking=new Booking(orderId,fromDay,tillDay); // create booking
+        if(tillDay<fromDay||car.bookings.overlaps(fromDay,tillDay))return false; // reversed range or overlap fail
+        Booking booking=new Booking(orderId,car,fromDay,tillDay); // create booking
         car.bookings.add(booking); // store in car
         bookings.put(orderId,booking); // store in map
         return true; // success
     }
+    public List<String> getAvailableCars(String fromDate,String tillDate){ // O(C log B), bookings outside the range are never visited
+        int fromDay=parseDay(fromDate); // parse start day
+        int tillDay=parseDay(tillDate); // parse end day
+        if(tillDay<fromDay)throw new IllegalArgumentException("Reversed date range:"+fromDate+" "+tillDate); // every car would look free
+        List<String> available=new ArrayList<>(); // free cars
+        for(Car car:cars.values()){ // iterate fleet
+            if(car.bookings.latestTill()<fromDay||!car.bookings.overlaps(fromDay,tillDay))available.add(car.licensePlate); // O(1) when history ends before range
+        }
+        return available; // return free cars
+    }
     public void startTrip(String orderId,int odometerReading){ // O(1)
         Booking booking=bookings.get(orderId); // fetch booking
         booking.startOdometer=odometerReading; // store start km
         booking.tripStarted=true; // mark started
     }
-    public int endTrip(String orderId,int finalOdometer,String endDate){ // O(N)
+    public int endTrip(String orderId,int finalOdometer,String endDate){ // O(log B) to move the booking end
         Booking booking=bookings.get(orderId); // fetch booking
-        Car car=findCarByBooking(orderId); // fetch car
+        Car car=booking.car; // booking knows its car
         int endDay=parseDay(endDate); // parse end day
+        if(endDay<booking.fromDay)throw new IllegalArgumentException("Trip ends before it starts:"+endDate); // would leave an empty interval in the index
         int effectiveEnd=Math.max(booking.tillDay,endDay); // effective end date
         int days=1+(effectiveEnd-booking.fromDay); // inclusive days
-        int totalFreeKms=days*car.freeKmsPerDay; // total free kms
-        int totalKms=finalOdometer-booking.startOdometer; // distance
-        int extraKms=Math.max(0,totalKms-totalFreeKms); // extra kms
-        int totalCost=(days*car.costPerDay)+(extraKms*car.costPerKm); // total cost
-        booking.tillDay=endDay; // update booking to actual end
+        int totalCost=car.tripCost(days,finalOdometer-booking.startOdometer); // total cost
+        car.bookings.updateTill(booking,endDay); // update booking to actual end
         return totalCost; // return cost
     }
-    private boolean overlaps(int a,int b,int c,int d){ // inclusive overlap
-        return a<=d && c<=b; // overlap rule
+    private int parseDay(String date){return EpochDay.parse(date);} // parse yyyy-mm-dd to epoch day
+}
+class ConcurrentCarRentalService{ // same API, bookings on different cars never share a lock
+    private final ConcurrentHashMap<String,Car> cars=new ConcurrentHashMap<>(); // cars map
+    private final ConcurrentHashMap<String,Booking> bookings=new ConcurrentHashMap<>(); // order map
+    public void addCar(String licensePlate,int costPerDay,int freeKmsPerDay,int costPerKm){ // O(1)
+        cars.putIfAbsent(licensePlate,new Car(licensePlate,costPerDay,freeKmsPerDay,costPerKm)); // ignore duplicate
+    }
+    public boolean bookCar(String orderId,String licensePlate,String fromDate,String tillDate){ // O(log B) under the car's lock
+        Car car=cars.get(licensePlate); // fetch car
+        if(car==null||bookings.containsKey(orderId))return false; // invalid car or taken orderId
+        int fromDay=EpochDay.parse(fromDate); // parse outside the lock
+        int tillDay=EpochDay.parse(tillDate); // parse outside the lock
+        if(tillDay<fromDay)return false; // reversed range
+        car.lock.lock(); // check and insert atomically for this car
+        try{
+            if(car.bookings.overlaps(fromDay,tillDay))return false; // overlap fail
+            Booking booking=new Booking(orderId,car,fromDay,tillDay); // create booking
+            if(bookings.putIfAbsent(orderId,booking)!=null)return false; // orderId won by another car
+            car.bookings.add(booking); // store in car
+            return true; // success
+        }finally{car.lock.unlock();} // leave car
     }
-    private int parseDay(String date){ // parse yyyy-mm-dd
-        String[] parts=date.split("-"); // split
-        return Integer.parseInt(parts[2]); // return day
+    public List<String> getAvailableCars(String fromDate,String tillDate){ // O(C log B), one car locked at a time
+        int fromDay=EpochDay.parse(fromDate); // parse start day
+        int tillDay=EpochDay.parse(tillDate); // parse end day
+        if(tillDay<fromDay)throw new IllegalArgumentException("Reversed date range:"+fromDate+" "+tillDate); // every car would look free
+        List<String> available=new ArrayList<>(); // free cars
+        for(Car car:cars.values()){ // iterate fleet
+            car.lock.lock(); // tree may be rotating under a booking
+            try{
+                if(car.bookings.latestTill()<fromDay||!car.bookings.overlaps(fromDay,tillDay))available.add(car.licensePlate); // free in range
+            }finally{car.lock.unlock();} // leave car
+        }
+        return available; // return free cars
     }
-    private Car findCarByBooking(String orderId){ // find car
-        for(Car car:cars.values()){ // iterate cars
-            for(Booking b:car.bookings){
-                if(b.orderId.equals(orderId))return car; // match
+    public void startTrip(String orderId,int odometerReading){ // O(1)
+        Booking booking=bookings.get(orderId); // fetch booking
+        booking.car.lock.lock(); // trip state belongs to the car
+        try{
+            booking.startOdometer=odometerReading; // store start km
+            booking.tripStarted=true; // mark started
+        }finally{booking.car.lock.unlock();} // leave car
+    }
+    public int endTrip(String orderId,int finalOdometer,String endDate){ // O(log B) under the car's lock
+        Booking booking=bookings.get(orderId); // fetch booking
+        Car car=booking.car; // booking knows its car
+        int endDay=EpochDay.parse(endDate); // parse outside the lock
+        if(endDay<booking.fromDay)throw new IllegalArgumentException("Trip ends before it starts:"+endDate); // would leave an empty interval in the index
+        car.lock.lock(); // end moves inside the car's index
+        try{
+            int days=1+(Math.max(booking.tillDay,endDay)-booking.fromDay); // inclusive days
+            int totalCost=car.tripCost(days,finalOdometer-booking.startOdometer); // total cost
+            car.bookings.updateTill(booking,endDay); // update booking to actual end
+            return totalCost; // return cost
+        }finally{car.lock.unlock();} // leave car
+    }
+    public void forEachBooking(String licensePlate,Consumer<Booking> action){ // O(B), in fromDay order
+        Car car=cars.get(licensePlate); // fetch car
+        if(car==null)return; // unknown car
+        car.lock.lock(); // consistent view of the car
+        try{car.bookings.forEach(action);}finally{car.lock.unlock();} // walk bookings
+    }
+}
+class CarRentalStress{ // many clerks book the same few cars in parallel and check no two bookings overlap
+    static void run(int carCount,long millis){
+        equalStartShrink(); // regression for maxima left stale under rotated equal keys
+        int maxThreads=Math.max(2,Runtime.getRuntime().availableProcessors()); // up to core count
+        int firstDay=EpochDay.of(2025,1,1); // window start
+        double base=0; // single clerk throughput
+        for(int threads=1;threads<=maxThreads;threads*=2){ // double clerks each round
+            ConcurrentCarRentalService service=new ConcurrentCarRentalService(); // fresh fleet
+            for(int c=0;c<carCount;c++)service.addCar("KA"+c,1000,100,10); // add cars
+            Object global=new Object(); // lock of the wrapped baseline
+            CarRentalService wrapped=new CarRentalService(); // single-lock baseline
+            for(int c=0;c<carCount;c++)wrapped.addCar("KA"+c,1000,100,10); // add cars
+            AtomicLong cursor=new AtomicLong(); // attempts so far, slides the contested days forward
+            AtomicLong booked=new AtomicLong(); // successful bookings
+            long ops=drive(threads,millis,(clerk,i)->{ // striped service
+                long n=cursor.getAndIncrement(); // global attempt number
+                int from=firstDay+(int)(n/16)+ThreadLocalRandom.current().nextInt(8); // clerks fight over the same few days
+                String orderId=clerk+"-"+i,fromDate=java.time.LocalDate.ofEpochDay(from).toString(); // order and start
+                if(!service.bookCar(orderId,"KA"+(n%carCount),fromDate,java.time.LocalDate.ofEpochDay(from+ThreadLocalRandom.current().nextInt(4)).toString()))return; // lost the days
+                booked.incrementAndGet(); // count success
+                service.startTrip(orderId,0); // pick up
+                if((i&1)==0)service.endTrip(orderId,100,fromDate); // early return shortens the booking
+            });
+            AtomicLong lockedCursor=new AtomicLong(); // same workload for the baseline
+            long lockedOps=drive(threads,millis,(clerk,i)->{ // global lock baseline
+                long n=lockedCursor.getAndIncrement(); // global attempt number
+                int from=firstDay+(int)(n/16)+ThreadLocalRandom.current().nextInt(8); // contested days
+                String orderId=clerk+"-"+i,fromDate=java.time.LocalDate.ofEpochDay(from).toString(); // order and start
+                String tillDate=java.time.LocalDate.ofEpochDay(from+ThreadLocalRandom.current().nextInt(4)).toString(); // end
+                synchronized(global){ // whole fleet serialized
+                    if(!wrapped.bookCar(orderId,"KA"+(n%carCount),fromDate,tillDate))return; // lost the days
+                    wrapped.startTrip(orderId,0); // pick up
+                    if((i&1)==0)wrapped.endTrip(orderId,100,fromDate); // early return
+                }
+            });
+            int violations=0; // overlapping bookings found
+            long stored=0; // bookings held by cars
+            for(int c=0;c<carCount;c++){ // check every car
+                int[] lastTill={Integer.MIN_VALUE}; // end of previous booking
+                int[] overlaps={0}; // overlaps on this car
+                long[] count={0}; // bookings on this car
+                service.forEachBooking("KA"+c,booking->{ // in fromDay order
+                    if(booking.fromDay<=lastTill[0])overlaps[0]++; // starts before previous ended
+                    lastTill[0]=Math.max(lastTill[0],booking.tillDay); // advance end
+                    count[0]++; // count booking
+                });
+                violations+=overlaps[0];stored+=count[0]; // accumulate
             }
+            if(stored!=booked.get())violations++; // every success must be stored exactly once
+            double perSec=ops*1000.0/millis,lockedPerSec=lockedOps*1000.0/millis; // throughput
+            if(threads==1)base=perSec; // baseline
+            System.out.printf("clerks=%d ops/s=%.0f speedup=%.2f global-lock ops/s=%.0f bookings=%d violations=%d%n",threads,perSec,perSec/base,lockedPerSec,stored,violations); // report
+            if(violations>0)throw new IllegalStateException("Overlapping bookings under "+threads+" clerks"); // fail loudly
         }
-        return null; // fallback
+    }
+    private static void equalStartShrink(){ // bookings sharing a fromDay end up on both sides after rotations
+        BookingIndex index=new BookingIndex(); // single car
+        List<Booking> all=new ArrayList<>(); // inserted bookings
+        for(int i=0;i<256;i++){Booking booking=new Booking("E"+i,null,0,100);index.add(booking);all.add(booking);} // same key, random priorities
+        for(Booking booking:all)index.updateTill(booking,0); // every booking shrinks to its first day
+        if(index.latestTill()!=0||index.overlaps(50,60))throw new IllegalStateException("Stale maximum after shrinking equal-start bookings"); // fail loudly
+    }
+    private static long drive(int threads,long millis,ObjIntConsumer<Integer> attempt){ // booking attempts until deadline
+        AtomicLong ops=new AtomicLong(); // attempts made
+        long deadline=System.nanoTime()+millis*1_000_000L; // stop time
+        List<Thread> clerks=new ArrayList<>(); // clerk threads
+        for(int t=0;t<threads;t++){ // start clerks
+            final Integer clerk=t; // clerk id
+            Thread thread=new Thread(()->{
+                int i=0; // attempt counter
+                while(System.nanoTime()<deadline)attempt.accept(clerk,i++); // book until deadline
+                ops.addAndGet(i); // publish count
+            });
+            clerks.add(thread); // keep handle
+            thread.start(); // launch
+        }
+        for(Thread thread:clerks){try{thread.join();}catch(InterruptedException e){Thread.currentThread().interrupt();break;}} // wait for clerks
+        return ops.get(); // total attempts
+    }
+}
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
+    }
+}
+class CarRentalBench{ // java CarRental.java bench [cars] [bookingsPerCar] [ops] [quoteRanges] [quoteKms]
+    static String date(int epochDay){return java.time.LocalDate.ofEpochDay(epochDay).toString();} // yyyy-mm-dd
+    static void run(String[] args){
+        int carCount=Bench.param(args,1,1000); // fleet size
+        int perCar=Bench.param(args,2,100); // existing bookings per car
+        int ops=Bench.param(args,3,100_000); // ops per pass
+        int rangeCount=Bench.param(args,4,5); // date ranges per quote request
+        int kmCount=Bench.param(args,5,4); // km values per quote request
+        int firstDay=(int)java.time.LocalDate.of(2025,1,1).toEpochDay(); // history starts here
+        String[] plates=new String[carCount]; // license plates
+        for(int c=0;c<carCount;c++)plates[c]="KA"+c; // name cars
+        String[] orderIds=new String[ops],fromDates=new String[ops],tillDates=new String[ops]; // pre-built op inputs
+        for(int i=0;i<ops;i++){ // one request per op, each past the car's history
+            orderIds[i]="N"+i; // order id
+            int day=firstDay+3*perCar+3*(i/carCount); // next free slot for this car
+            fromDates[i]=date(day);tillDates[i]=date(day+1); // two-day booking
+        }
+        Supplier<CarRentalService> fleet=()->{ // fleet with booking history
+            CarRentalService service=new CarRentalService(); // fresh service
+            for(int c=0;c<carCount;c++){ // add cars
+                service.addCar(plates[c],1000,100,10); // add car
+                for(int b=0;b<perCar;b++)service.bookCar("H"+c+"-"+b,plates[c],date(firstDay+3*b),date(firstDay+3*b+1)); // past bookings
+            }
+            return service; // return fleet
+        };
+        Bench.measure("CarRentalService bookCar",ops,()->{
+            CarRentalService service=fleet.get(); // fresh fleet
+            return i->service.bookCar(orderIds[i],plates[i%carCount],fromDates[i],tillDates[i]); // book next slot
+        });
+        Bench.measure("CarRentalService getAvailableCars",Math.max(1,ops/100),()->{
+            CarRentalService service=fleet.get(); // fresh fleet
+            return i->service.getAvailableCars(fromDates[i],tillDates[i]); // fleet search
+        });
+        String[] quoteFrom=new String[rangeCount],quoteTill=new String[rangeCount]; // search ranges overlapping the history tail
+        for(int r=0;r<rangeCount;r++){quoteFrom[r]=date(firstDay+3*perCar-10+7*r);quoteTill[r]=date(firstDay+3*perCar-10+7*r+2+r);} // mix of booked and free
+        int[] quoteKms=new int[kmCount]; // expected kms
+        for(int k=0;k<kmCount;k++)quoteKms[k]=100+150*k; // spread
+        int requests=Math.max(1,ops/1000); // quote requests per pass
+        Bench.measure("CarRentalService quote loop",requests,()->{
+            CarRentalService service=fleet.get(); // fresh fleet
+            int[] sink=new int[1]; // keep results alive
+            return i->{ // per-car formula for every tuple
+                for(int c=0;c<carCount;c++)for(int r=0;r<rangeCount;r++)for(int k=0;k<kmCount;k++)sink[0]+=service.quote(plates[c],quoteFrom[r],quoteTill[r],quoteKms[k]); // one tuple
+            };
+        });
+        Bench.measure("CarRentalService quoteFleet",requests,()->{
+            CarRentalService service=fleet.get(); // fresh fleet
+            return i->service.quoteFleet(quoteFrom,quoteTill,quoteKms); // whole grid in one pass
+        });
+        Bench.measure("CarRentalService endTrip",ops,()->{
+            CarRentalService service=fleet.get(); // fresh fleet
+            for(int i=0;i<ops;i++){service.bookCar(orderIds[i],plates[i%carCount],fromDates[i],tillDates[i]);service.startTrip(orderIds[i],1000);} // open trips after each car's history
+            return i->service.endTrip(orderIds[i],1300,tillDates[i]); // close trip
+        });
     }
 }
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){CarRentalBench.run(args);return;} // java CarRental.java bench
+        if(args.length>0&&"stress".equals(args[0])){CarRentalStress.run(4,2000);return;} // java CarRental.java stress
         CarRentalService service=new CarRentalService(); // create service
         service.addCar("KA01",1000,100,10); // add car
         service.bookCar("O1","KA01","2025-08-06","2025-08-12"); // book
@@ -1,19 +1,53 @@
 import java.util.*; // import utility classes
+import java.util.function.*; // import functional interfaces
 
+final class PathSlice implements CharSequence{ // reusable view of one path component, lets lookups skip substring
+    private String path; // backing path
+    private int start,end; // component bounds
+    PathSlice set(String path,int start,int end){this.path=path;this.start=start;this.end=end;return this;} // point at a component
+    public int length(){return end-start;} // component length
+    public char charAt(int index){return path.charAt(start+index);} // component char
+    public CharSequence subSequence(int from,int to){return path.subSequence(start+from,start+to);} // copy of a range
+    public String toString(){return path.substring(start,end);} // copy of the component
+}
 class Directory{
     private String name; // directory name
+    private String path; // absolute path, built on first use, directories never move
     Directory parent; // parent directory reference
-    TreeMap<String,Directory> children; // children stored in lexicographic order
-    public Directory(String name){this.name=name;this.children=new TreeMap<>();} // constructor
+    private Directory first; // smallest child, null if none
+    TreeMap<CharSequence,Directory> children; // children stored in lexicographic order, looked up by String or PathSlice
+    public Directory(String name){this.name=name;this.children=new TreeMap<>(CharSequence::compare);} // constructor, same order as String
     public String getName(){return name;} // return directory name
-    public Directory getChild(String name){return children.get(name);} // fetch child by name
-    public void addChild(Directory dir){dir.parent=this;children.put(dir.getName(),dir);} // add child directory
+    public String getPath(){ // O(depth) once, then O(1); iterative, only this directory keeps the string
+        if(path!=null)return path; // cached
+        if(parent==this)return path="/"; // root
+        int length=0;Directory top=this; // nearest ancestor with a known prefix
+        while(top.parent!=top&&(top==this||top.path==null)){length+=top.name.length()+1;top=top.parent;} // "/name" per level
+        String prefix=top.parent==top?"":top.path; // root contributes no chars before its children's "/"
+        char[] chars=new char[prefix.length()+length]; // whole path
+        prefix.getChars(0,prefix.length(),chars,0); // known prefix
+        int end=chars.length; // fill from the back
+        for(Directory d=this;d!=top;d=d.parent){end-=d.name.length();d.name.getChars(0,d.name.length(),chars,end);chars[--end]='/';} // each level
+        return path=new String(chars); // cache it
+    }
+    public Directory getChild(CharSequence name){return children.get(name);} // fetch child by name
+    public Directory getFirstChild(){return first;} // smallest child without an entry copy
+    public void addChild(Directory dir){ // add child directory
+        dir.parent=this;children.put(dir.getName(),dir); // link
+        if(first==null||dir.getName().compareTo(first.getName())<0)first=dir; // new smallest
+    }
 }
 class FileSystem{
     private static volatile FileSystem instance; // singleton instance
     private Directory root; // root directory
     private Directory current; // current working directory
     private final Object lock=new Object(); // lock for thread safety
+    private static final int PATH_CACHE_SIZE=1<<12; // absolute paths remembered
+    private final Map<String,Directory> resolved=new LinkedHashMap<>(16,0.75f,true){ // LRU absolute path -> directory, guarded by lock
+        protected boolean removeEldestEntry(Map.Entry<String,Directory> eldest){return size()>PATH_CACHE_SIZE;} // bounded
+    };
+    private boolean cachedWildcard; // a cached path used *, whose target moves when a smaller child appears
+    private final PathSlice component=new PathSlice(); // lookup key reused under lock
     private FileSystem(){
         this.root=new Directory("/"); // create root
         this.root.parent=root; // root parent points to itself
@@ -29,29 +63,27 @@ class FileSystem{
         }
         return instance;
     }
-    private String[] parsePath(String path){ // split path into components
-        if(path==null||path.isEmpty())return new String[0]; // handle empty
-        String[] parts=path.split("/"); // split by /
-        List<String> result=new ArrayList<>(); // list to hold valid parts
-        for(String part:parts){ // iterate parts
-            if(!part.isEmpty())result.add(part); // ignore empty segments
-        }
-        return result.toArray(new String[0]); // convert to array
-    }
-    private Directory navigateTo(Directory start,String[] parts,boolean createIfNotExist){ // navigate helper
+    private Directory navigateTo(Directory start,String path,boolean createIfNotExist){ // navigate helper, walks path by index without splitting
         Directory temp=start; // start traversal from given directory
-        for(String part:parts){ // iterate path parts
-            if(".".equals(part))continue; // stay in current
-            if("..".equals(part)){temp=temp.parent;continue;} // go to parent
-            if("*".equals(part)){ // wildcard case
-                if(!temp.children.isEmpty())temp=temp.children.firstEntry().getValue(); // move to smallest child
+        int n=path.length(); // path length
+        for(int i=0;i<n;){ // iterate path parts
+            if(path.charAt(i)=='/'){i++;continue;} // ignore empty segments
+            int end=path.indexOf('/',i); // component end
+            if(end<0)end=n; // last component
+            int length=end-i;char first=path.charAt(i); // component shape
+            int at=i;i=end; // next component
+            if(length==1&&first=='.')continue; // stay in current
+            if(length==2&&first=='.'&&path.charAt(at+1)=='.'){temp=temp.parent;continue;} // go to parent
+            if(length==1&&first=='*'){ // wildcard case
+                if(temp.getFirstChild()!=null)temp=temp.getFirstChild(); // move to smallest child
                 continue; // continue to next part
             }
-            Directory next=temp.getChild(part); // get child directory
+            Directory next=temp.getChild(component.set(path,at,end)); // get child directory
             if(next==null){ // if child does not exist
                 if(createIfNotExist){ // if mkdir mode
-                    Directory newDir=new Directory(part); // create new directory
+                    Directory newDir=new Directory(path.substring(at,end)); // create new directory, the only allocation
                     temp.addChild(newDir); // add as child
+                    if(cachedWildcard&&temp.getFirstChild()==newDir){resolved.clear();cachedWildcard=false;} // * under temp now resolves elsewhere
                     temp=newDir; // move to new directory
                 }else{
                     return null; // fail for cd if not exist
@@ -62,12 +94,17 @@ class FileSystem{
         }
         return temp; // return final directory
     }
-    public boolean mkdir(String path){ // O(depth)
+    private void remember(String path,Directory dir){ // cache an absolute resolution
+        resolved.put(path,dir); // LRU insert
+        if(path.indexOf('*')>=0)cachedWildcard=true; // may need invalidation
+    }
+    public boolean mkdir(String path){ // O(1) for cached absolute paths, O(depth) otherwise
         synchronized(lock){
             if(path==null||path.isEmpty())return false; // invalid path
-            Directory start=path.startsWith("/")?root:current; // determine start
-            String[] parts=parsePath(path); // parse path
-            Directory result=navigateTo(start,parts,true); // navigate and create
+            boolean absolute=path.charAt(0)=='/'; // determine start
+            if(absolute&&resolved.get(path)!=null)return true; // already exists, get also refreshes its LRU position
+            Directory result=navigateTo(absolute?root:current,path,true); // navigate and create
+            if(absolute)remember(path,result); // cache it
             return result!=null; // return success
         }
     }
@@ -75,34 +112,74 @@ class FileSystem{
         synchronized(lock){
             if(path==null||path.isEmpty())return false; // invalid path
             if("/".equals(path)){current=root;return true;} // go to root
-            Directory start=path.startsWith("/")?root:current; // determine start
-            String[] parts=parsePath(path); // parse path
-            Directory result=navigateTo(start,parts,false); // navigate without create
-            if(result==null)return false; // if invalid path
+            boolean absolute=path.charAt(0)=='/'; // determine start
+            Directory result=absolute?resolved.get(path):null; // cached absolute path
+            if(result==null){ // resolve by walking
+                result=navigateTo(absolute?root:current,path,false); // navigate without create
+                if(result==null)return false; // if invalid path
+                if(absolute)remember(path,result); // cache it
+            }
             current=result; // update current directory
             return true; // success
         }
     }
-    public String pwd(){ // O(depth)
+    public String pwd(){ // O(1), each directory caches its path
         synchronized(lock){
-            if(current==root)return "/"; // root case
-            Deque<String> stack=new ArrayDeque<>(); // stack to build path
-            Directory temp=current; // start from current
-            while(temp!=root){ // traverse up to root
-                stack.push(temp.getName()); // push directory name
-                temp=temp.parent; // move to parent
-            }
-            StringBuilder path=new StringBuilder("/"); // build absolute path
-            while(!stack.isEmpty()){ // pop stack
-                path.append(stack.pop()); // append name
-                if(!stack.isEmpty())path.append("/"); // add separator
-            }
-            return path.toString(); // return path
+            return current.getPath(); // cached absolute path
+        }
+    }
+}
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
+    }
+}
+class FileSystemBench{ // java FileSystem.java bench [depth] [fanout] [ops]
+    static void run(String[] args){
+        int depth=Bench.param(args,1,12); // directory depth
+        int fanout=Bench.param(args,2,8); // children per directory
+        int ops=Bench.param(args,3,200_000); // ops per pass
+        Random random=new Random(42); // fixed seed
+        String[] paths=new String[1024]; // absolute paths to visit
+        for(int p=0;p<paths.length;p++){ // random walks down the tree
+            StringBuilder path=new StringBuilder(); // path under construction
+            for(int d=0;d<depth;d++)path.append("/d").append(random.nextInt(fanout)); // pick a child per level
+            paths[p]=path.toString(); // store path
         }
+        FileSystem fs=FileSystem.getInstance(); // singleton shared by all passes
+        for(String path:paths)fs.mkdir(path); // build the tree once
+        Bench.measure("FileSystem cd absolute",ops,()->i->fs.cd(paths[i&1023])); // deep absolute cd
+        String[] spellings=new String[8192]; // twice the path cache, cycled so every lookup misses
+        for(int k=0;k<spellings.length;k++)spellings[k]=paths[k&1023]+"/.".repeat(k>>10); // same directories, distinct strings
+        Bench.measure("FileSystem cd absolute uncached",ops,()->i->fs.cd(spellings[i&8191])); // tokenizer and cache churn
+        Bench.measure("FileSystem cd relative",ops,()->{fs.cd(paths[0]);return i->fs.cd((i&1)==0?"..":"*");}); // hop up and down
+        Bench.measure("FileSystem pwd",ops,()->{fs.cd(paths[0]);return i->fs.pwd();}); // deep pwd
+        Bench.measure("FileSystem mkdir existing",ops,()->i->fs.mkdir(paths[i&1023])); // idempotent mkdir
     }
 }
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){FileSystemBench.run(args);return;} // java FileSystem.java bench
         FileSystem fs=FileSystem.getInstance(); // get singleton instance
         fs.mkdir("/a/b/c"); // create nested directories
         fs.mkdir("/a/b/d"); // create another branch
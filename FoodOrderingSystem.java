@@ -1,20 +1,254 @@
+import java.io.*; // import io exceptions
+import java.nio.*; // import byte buffers
+import java.nio.channels.*; // import file channels
+import java.nio.charset.*; // import charsets
+import java.nio.file.*; // import paths
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // import concurrent collections
+import java.util.concurrent.atomic.*; // import atomics
+import java.util.concurrent.locks.*; // import locks
+import java.util.function.*; // import functional interfaces
 
 class RatingAggregate{
+    String restaurantId; // ranked restaurant
     int total; // total rating sum
     int count; // rating count
+    int rank=-1; // position in its TopKRanking buffer, -1 when below the floor
+    public RatingAggregate(String restaurantId){this.restaurantId=restaurantId;} // constructor
     public void addRating(int rating){total+=rating;count++;} // add rating
     public double getAverage(){if(count==0)return 0.0;return (double)total/count;} // average
+    static int compare(long totalA,int countA,String idA,long totalB,int countB,String idB){ // negative when A ranks first: higher average, then lower id
+        long left=totalA*Math.max(countB,1),right=totalB*Math.max(countA,1); // cross-multiplied averages, unrated counts as 0/1
+        if(left!=right)return left>right?-1:1; // desc by average
+        return idA.compareTo(idB); // lex tie
+    }
+}
+
+enum RatingWindow{ // span of ratings a ranking averages over
+    ALL_TIME(0),LAST_7_DAYS(7),LAST_30_DAYS(30),DECAYED(0);
+    static final RatingWindow[] STREAMING={LAST_7_DAYS,LAST_30_DAYS,DECAYED}; // kept only in streaming mode, slot is ordinal-1
+    final int days; // sliding window length, 0 when unbounded
+    RatingWindow(int days){this.days=days;} // constructor
+    StreamingRating newRating(String restaurantId,long today,double halfLifeDays){ // aggregate for this window
+        return this==DECAYED?new DecayedRating(restaurantId,today,halfLifeDays):new WindowedRating(restaurantId,days,today); // by kind
+    }
+}
+
+abstract class StreamingRating extends RatingAggregate{ // aggregate whose total and count follow the clock, fixed memory per pair
+    StreamingRating(String restaurantId){super(restaurantId);} // constructor
+    abstract void addRating(int rating,long today); // rating given on epoch day today
+    void roll(long today){} // bring total and count up to today without a rating
+    abstract void write(SnapshotWriter out) throws IOException; // persist state
+    abstract void read(ByteBuffer in); // restore state written by write
+}
+
+final class WindowedRating extends StreamingRating{ // sliding window of daily buckets in a ring
+    private final int[] sums; // rating sum per day slot
+    private final int[] counts; // rating count per day slot
+    private long day; // newest day held
+    WindowedRating(String restaurantId,int days,long today){super(restaurantId);this.sums=new int[days];this.counts=new int[days];this.day=today;} // constructor
+    @Override void roll(long today){ // O(min(elapsed,days)), drops buckets that left the window
+        if(today<=day)return; // window already current
+        for(long d=day+1;d<=Math.min(today,day+sums.length);d++){ // slots reused by the new days
+            int slot=(int)Math.floorMod(d,(long)sums.length); // ring slot
+            total-=sums[slot];count-=counts[slot]; // expire bucket
+            sums[slot]=0;counts[slot]=0; // clear bucket
+        }
+        day=today; // advance
+    }
+    @Override void addRating(int rating,long today){ // O(1) amortized
+        roll(today); // expire old days first
+        int slot=(int)Math.floorMod(day,(long)sums.length); // a late rating counts as today
+        sums[slot]+=rating;counts[slot]++; // bucket
+        total+=rating;count++; // window sums
+    }
+    @Override void write(SnapshotWriter out) throws IOException{ // day then every bucket
+        out.putLong(day); // newest day
+        for(int slot=0;slot<sums.length;slot++){out.putInt(sums[slot]);out.putInt(counts[slot]);} // ring as is
+    }
+    @Override void read(ByteBuffer in){ // window sums are recomputed from the buckets
+        day=in.getLong();total=0;count=0; // reset
+        for(int slot=0;slot<sums.length;slot++){sums[slot]=in.getInt();counts[slot]=in.getInt();total+=sums[slot];count+=counts[slot];} // ring
+    }
+}
+
+final class DecayedRating extends StreamingRating{ // exponentially decayed sums in fixed point, aged only when rated
+    static final int SCALE=1<<10; // weight of a fresh rating
+    private static final int LIMIT=1<<27; // halve both sums before total can overflow
+    private final double halfLifeDays; // days for a rating's weight to halve
+    private long day; // day the sums are expressed at
+    DecayedRating(String restaurantId,long today,double halfLifeDays){super(restaurantId);this.day=today;this.halfLifeDays=halfLifeDays;} // constructor
+    @Override void addRating(int rating,long today){ // O(1), decay scales total and count alike so untouched averages never need aging
+        if(today>day){ // age sums to today
+            double factor=Math.pow(0.5,(today-day)/halfLifeDays); // weight left
+            total=(int)Math.round(total*factor);count=(int)Math.round(count*factor); // scale both
+            if(count==0)total=0; // fully forgotten
+            day=today; // advance
+        }
+        total+=rating*SCALE;count+=SCALE; // fresh rating at full weight
+        while(count>LIMIT){total>>=1;count>>=1;} // rescale, average unchanged
+    }
+    @Override void write(SnapshotWriter out) throws IOException{out.putLong(day);out.putInt(total);out.putInt(count);} // day and sums
+    @Override void read(ByteBuffer in){day=in.getLong();total=in.getInt();count=in.getInt();} // day and sums
+}
+
+final class WindowRanking extends TopKRanking{ // ranking of streaming aggregates, re-aged once per day
+    final RatingWindow window; // window ranked
+    private volatile long agedDay; // day members were last rolled to, checked by readers without the lock
+    WindowRanking(RatingWindow window,long today){this.window=window;this.agedDay=today;} // constructor
+    boolean isStale(long today){return window.days>0&&today>agedDay;} // sliding window moved since last roll
+    void age(long today){ // O(R), once per day, caller holds the writer lock
+        if(!isStale(today))return; // current
+        agedDay=today; // advance
+        refresh(aggregate->((StreamingRating)aggregate).roll(today)); // expire every member's old buckets
+    }
+}
+
+final class StripedRating extends RatingAggregate{ // counters written lock-free by many raters, folded into the ranking by the shard lock holder
+    private static final AtomicIntegerFieldUpdater<StripedRating> QUEUED=AtomicIntegerFieldUpdater.newUpdater(StripedRating.class,"queued"); // pending flag CAS
+    final TopKRanking ranking; // ranking this aggregate belongs to
+    private final LongAdder packed=new LongAdder(); // rating<<32|1 per rating, total and count land in one cell together
+    private volatile int queued; // 1 while waiting in its shard's pending queue
+    StripedRating(String restaurantId,TopKRanking ranking){super(restaurantId);this.ranking=ranking;} // constructor
+    boolean record(int rating){ // true when the caller must enqueue it
+        packed.add((long)rating<<32|1); // striped add, no lock
+        return queued==0&&QUEUED.compareAndSet(this,0,1); // first rating since the last fold
+    }
+    void fold(){ // caller holds the shard lock
+        queued=0; // later ratings enqueue again
+        long sum=packed.sum(); // every cell adds both halves at once
+        total=(int)(sum>>>32);count=(int)sum; // publish to the ranking key
+    }
+}
+
+final class RankingSnapshot{ // immutable top-K list published to lock-free readers
+    static final RankingSnapshot EMPTY=new RankingSnapshot(0,Collections.emptyList(),new long[0],new int[0],null); // nothing published yet
+    private final long version; // publish counter of its ranking
+    private final List<String> restaurantIds; // best first, unmodifiable
+    private final long[] totals; // rating sum per entry, for merging
+    private final int[] counts; // rating count per entry, for merging
+    final RankingSnapshot[] sources; // shard snapshots this was merged from, null for a single ranking
+    RankingSnapshot(long version,List<String> restaurantIds,long[] totals,int[] counts,RankingSnapshot[] sources){this.version=version;this.restaurantIds=restaurantIds;this.totals=totals;this.counts=counts;this.sources=sources;} // constructor
+    public long getVersion(){return version;} // return version
+    public List<String> getRestaurantIds(){return restaurantIds;} // return ranked ids
+    static RankingSnapshot merge(RankingSnapshot[] parts,long version){ // O(parts*K) k-way merge of disjoint rankings
+        int[] next=new int[parts.length]; // head of each part
+        List<String> ids=new ArrayList<>(TopKRanking.K); // merged ids
+        long[] totals=new long[TopKRanking.K]; // merged sums
+        int[] counts=new int[TopKRanking.K]; // merged counts
+        while(ids.size()<TopKRanking.K){ // pick the best head each round
+            int best=-1; // part holding the best head
+            for(int p=0;p<parts.length;p++){ // scan heads
+                RankingSnapshot part=parts[p];int i=next[p]; // candidate
+                if(i==part.totals.length)continue; // part exhausted
+                if(best<0){best=p;continue;} // first candidate
+                RankingSnapshot top=parts[best];int j=next[best]; // current best
+                if(RatingAggregate.compare(part.totals[i],part.counts[i],part.restaurantIds.get(i),top.totals[j],top.counts[j],top.restaurantIds.get(j))<0)best=p; // ranks first
+            }
+            if(best<0)break; // every part exhausted
+            int i=next[best]++;RankingSnapshot part=parts[best]; // take head
+            totals[ids.size()]=part.totals[i];counts[ids.size()]=part.counts[i];ids.add(part.restaurantIds.get(i)); // append
+        }
+        return new RankingSnapshot(version,Collections.unmodifiableList(ids),Arrays.copyOf(totals,ids.size()),Arrays.copyOf(counts,ids.size()),parts); // immutable result
+    }
+}
+
+class TopKRanking{ // best K of a ranking under frequent updates, aggregates below the floor are tracked but not ordered
+    static final int K=20; // results served
+    private static final int SLACK=K; // extra buffered entries before a rescan is needed
+    private final List<RatingAggregate> all; // every aggregate in this ranking
+    private final RatingAggregate[] top; // buffer sorted best-first
+    private int size; // used buffer slots
+    private boolean hasFloor; // false while every aggregate fits in the buffer
+    private long floorTotal; // key of the best aggregate outside the buffer, or higher
+    private int floorCount; // floor rating count
+    private String floorId; // floor tie-break id
+    private volatile RankingSnapshot snapshot=RankingSnapshot.EMPTY; // last published top K
+    private volatile boolean dirty; // top K entries or their ratings changed since last publish
+    private volatile long publishedAt; // clock value of last publish
+    public TopKRanking(){
+        this.all=new ArrayList<>(); // init members
+        this.top=new RatingAggregate[K+SLACK]; // init buffer
+    }
+    public void add(RatingAggregate aggregate){all.add(aggregate);offer(aggregate);} // O(K) new member
+    public void update(RatingAggregate aggregate){ // after a rating changed, O(1) below the floor, O(K) in the buffer
+        if(aggregate.rank<0){offer(aggregate);return;} // outsider may have climbed over the floor
+        remove(aggregate.rank); // take out of buffer
+        if(aboveFloor(aggregate)){insert(aggregate);return;} // still ahead of every outsider
+        if(size<K&&all.size()>size)rebuild(); // buffer too short to answer, rescan
+    }
+    public RankingSnapshot snapshot(){return snapshot;} // volatile read, no lock
+    public boolean isDirty(){return dirty;} // top K changed since last publish
+    public boolean isDue(long now,long maxStalenessMillis){return dirty&&(snapshot==RankingSnapshot.EMPTY||now-publishedAt>=maxStalenessMillis);} // changed and old enough, first publish never waits
+    void publish(long now){ // caller holds the writer lock, O(K)
+        int n=Math.min(K,size); // published entries
+        long[] totals=new long[n];int[] counts=new int[n]; // keys for merging
+        for(int i=0;i<n;i++){totals[i]=top[i].total;counts[i]=top[i].count;} // copy keys
+        snapshot=new RankingSnapshot(snapshot.getVersion()+1,Collections.unmodifiableList(top(K)),totals,counts,null); // immutable copy
+        dirty=false;publishedAt=now; // mark clean
+    }
+    public List<String> top(int k){ // O(k)
+        List<String> result=new ArrayList<>(); // result
+        for(int i=0;i<Math.min(k,size);i++)result.add(top[i].restaurantId); // buffer prefix
+        return result; // return
+    }
+    private void offer(RatingAggregate aggregate){ // outsider enters the buffer only if it beats the floor
+        if(!aboveFloor(aggregate))return; // stays an outsider
+        insert(aggregate); // add to buffer
+    }
+    private boolean aboveFloor(RatingAggregate aggregate){ // O(1)
+        return !hasFloor||RatingAggregate.compare(aggregate.total,aggregate.count,aggregate.restaurantId,floorTotal,floorCount,floorId)<0; // ahead of floor
+    }
+    private void insert(RatingAggregate aggregate){ // sorted insert, dropping the last entry to the floor when full
+        if(size==top.length){ // buffer full, worst of buffer and newcomer becomes the floor
+            RatingAggregate last=top[size-1]; // worst buffered
+            if(RatingAggregate.compare(aggregate.total,aggregate.count,aggregate.restaurantId,last.total,last.count,last.restaurantId)>0){setFloor(aggregate);return;} // newcomer stays outside
+            top[--size]=null;last.rank=-1; // last leaves buffer
+            setFloor(last); // outsiders now rank at or below it
+        }
+        int i=size; // shift worse entries right
+        if(i<K||RatingAggregate.compare(aggregate.total,aggregate.count,aggregate.restaurantId,top[K-1].total,top[K-1].count,top[K-1].restaurantId)<0)dirty=true; // lands in the top K
+        while(i>0&&RatingAggregate.compare(aggregate.total,aggregate.count,aggregate.restaurantId,top[i-1].total,top[i-1].count,top[i-1].restaurantId)<0){top[i]=top[i-1];top[i].rank=i;i--;} // move down
+        top[i]=aggregate;aggregate.rank=i;size++; // place
+    }
+    private void setFloor(RatingAggregate aggregate){hasFloor=true;floorTotal=aggregate.total;floorCount=aggregate.count;floorId=aggregate.restaurantId;} // freeze key of best outsider
+    private void remove(int index){ // O(K)
+        if(index<K)dirty=true; // top K loses an entry
+        top[index].rank=-1; // leaves buffer
+        for(int i=index;i<size-1;i++){top[i]=top[i+1];top[i].rank=i;} // close gap
+        top[--size]=null; // clear slot
+    }
+    void addUnranked(RatingAggregate aggregate){all.add(aggregate);} // bulk load, call rankAll once done
+    void rankAll(){ // O(R log R) single sort over every member, for bulk loads
+        for(int i=0;i<size;i++){top[i].rank=-1;top[i]=null;} // empty buffer
+        RatingAggregate[] sorted=all.toArray(new RatingAggregate[0]); // members
+        Arrays.sort(sorted,(a,b)->RatingAggregate.compare(a.total,a.count,a.restaurantId,b.total,b.count,b.restaurantId)); // best first
+        size=Math.min(sorted.length,top.length); // fill buffer
+        for(int i=0;i<size;i++){top[i]=sorted[i];sorted[i].rank=i;} // place
+        hasFloor=sorted.length>size; // outsiders exist
+        if(hasFloor)setFloor(sorted[size]); // best outsider
+        dirty=true; // republish
+    }
+    void refresh(Consumer<RatingAggregate> change){for(RatingAggregate aggregate:all)change.accept(aggregate);rebuild();} // O(R) after changing many members at once
+    private void rebuild(){ // O(R) rescan, amortized over SLACK evictions
+        for(int i=0;i<size;i++){top[i].rank=-1;top[i]=null;} // empty buffer
+        size=0;hasFloor=false; // no floor
+        for(RatingAggregate aggregate:all)offer(aggregate); // bounded selection
+        dirty=true; // republish
+    }
 }
 
 class Restaurant{
     String restaurantId; // id
     RatingAggregate overallRating; // overall rating
     Map<String,RatingAggregate> foodRatings; // food specific ratings
-    public Restaurant(String id){
+    StreamingRating[] streamingRatings; // overall per streaming window, null unless streaming
+    Map<String,StreamingRating[]> foodStreamingRatings; // food specific per streaming window, null unless streaming
+    public Restaurant(String id){this(id,new RatingAggregate(id),new HashMap<>());} // single-lock restaurant
+    public Restaurant(String id,RatingAggregate overallRating,Map<String,RatingAggregate> foodRatings){
         this.restaurantId=id; // assign id
-        this.overallRating=new RatingAggregate(); // init overall
-        this.foodRatings=new HashMap<>(); // init food ratings
+        this.overallRating=overallRating; // assign overall
+        this.foodRatings=foodRatings; // assign food ratings
     }
 }
 
@@ -22,93 +256,598 @@ class Order{
     String orderId; // id
     String restaurantId; // restaurant
     String foodItemId; // food
-    boolean rated; // rated flag
     public Order(String orderId,String restaurantId,String foodItemId){
         this.orderId=orderId; // assign id
         this.restaurantId=restaurantId; // assign restaurant
         this.foodItemId=foodItemId; // assign food
-        this.rated=false; // initially not rated
     }
 }
 
 class FoodDeliverySystem{
     private Map<String,Restaurant> restaurants; // restaurant map
     private Map<String,Order> orders; // order map
-    private Map<String,TreeSet<Restaurant>> foodRanking; // per food ranking
-    private TreeSet<Restaurant> overallRanking; // overall ranking
+    private Map<String,TopKRanking> foodRanking; // per food ranking, read without the lock
+    private TopKRanking overallRanking; // overall ranking
+    private final ReentrantLock lock=new ReentrantLock(); // serializes writers, readers never wait on it
+    private final long maxStalenessMillis; // minimum gap between republishing a ranking
+    private final LongSupplier clock; // millis source for throttling and rating days
+    private final double halfLifeDays; // decay of the DECAYED window, 0 when not streaming
+    private final WindowRanking[] overallWindowRanking; // overall ranking per streaming window, null unless streaming
+    private final Map<String,WindowRanking[]> foodWindowRanking; // food ranking per streaming window, read without the lock
+    static final long DAY_MILLIS=86_400_000L; // bucket width
+    private static final int SNAPSHOT_MAGIC=0x46445331; // "FDS1"
 
-    public FoodDeliverySystem(){
+    public FoodDeliverySystem(){this(0,System::currentTimeMillis);} // publish on every change
+    public FoodDeliverySystem(long maxStalenessMillis,LongSupplier clock){this(maxStalenessMillis,clock,0);} // all-time ratings only
+    public FoodDeliverySystem(long maxStalenessMillis,LongSupplier clock,double halfLifeDays){ // halfLifeDays>0 also keeps 7 day, 30 day and decayed rankings
         this.restaurants=new HashMap<>(); // init restaurant map
         this.orders=new HashMap<>(); // init order map
-        this.foodRanking=new HashMap<>(); // init food ranking map
-        this.overallRanking=new TreeSet<>((a,b)->{ // comparator
-            double avgA=a.overallRating.getAverage(); // avg A
-            double avgB=b.overallRating.getAverage(); // avg B
-            if(avgA!=avgB)return Double.compare(avgB,avgA); // desc
-            return a.restaurantId.compareTo(b.restaurantId); // lex tie
-        });
+        this.foodRanking=new ConcurrentHashMap<>(); // init food ranking map
+        this.overallRanking=new TopKRanking(); // init overall ranking
+        this.maxStalenessMillis=maxStalenessMillis; // assign staleness
+        this.clock=clock; // assign clock
+        this.halfLifeDays=halfLifeDays; // assign decay
+        this.overallWindowRanking=halfLifeDays>0?newWindowRankings(today()):null; // streaming rankings
+        this.foodWindowRanking=halfLifeDays>0?new ConcurrentHashMap<>():null; // per food streaming rankings
     }
 
-    public synchronized void orderFood(String orderId,String restaurantId,String foodItemId){ // O(log R)
-        restaurants.putIfAbsent(restaurantId,new Restaurant(restaurantId)); // ensure restaurant
-        Restaurant r=restaurants.get(restaurantId); // fetch restaurant
-        overallRanking.add(r); // ensure present in ranking
-        foodRanking.putIfAbsent(foodItemId,new TreeSet<>((a,b)->{ // ensure food ranking
-            double avgA=a.foodRatings.containsKey(foodItemId)?a.foodRatings.get(foodItemId).getAverage():0.0; // avg A
-            double avgB=b.foodRatings.containsKey(foodItemId)?b.foodRatings.get(foodItemId).getAverage():0.0; // avg B
-            if(avgA!=avgB)return Double.compare(avgB,avgA); // desc
-            return a.restaurantId.compareTo(b.restaurantId); // lex
-        }));
-        foodRanking.get(foodItemId).add(r); // add restaurant to food ranking
-        orders.put(orderId,new Order(orderId,restaurantId,foodItemId)); // store order
+    public void orderFood(String orderId,String restaurantId,String foodItemId){ // O(1), O(K) for a new restaurant or food pair
+        lock.lock(); // enter writer section
+        try{
+            Restaurant r=restaurants.get(restaurantId); // fetch restaurant
+            if(r==null){ // first order of restaurant
+                r=new Restaurant(restaurantId); // create restaurant
+                restaurants.put(restaurantId,r); // store it
+                overallRanking.add(r.overallRating); // rank it
+                if(overallWindowRanking!=null){r.streamingRatings=addStreaming(restaurantId,overallWindowRanking);r.foodStreamingRatings=new HashMap<>();} // streaming windows
+            }
+            if(!r.foodRatings.containsKey(foodItemId)){ // first order of this food here
+                RatingAggregate foodRating=new RatingAggregate(restaurantId); // unrated pair
+                r.foodRatings.put(foodItemId,foodRating); // store it
+                TopKRanking ranking=foodRanking.computeIfAbsent(foodItemId,k->new TopKRanking()); // food ranking
+                ranking.add(foodRating); // rank it
+                publishIfDue(ranking); // new pair may enter the top
+                if(foodWindowRanking!=null)r.foodStreamingRatings.put(foodItemId,addStreaming(restaurantId,foodWindowRanking.computeIfAbsent(foodItemId,k->newWindowRankings(today())))); // streaming windows
+            }
+            publishIfDue(overallRanking); // new restaurant may enter the top
+            orders.put(orderId,new Order(orderId,restaurantId,foodItemId)); // store order
+        }finally{lock.unlock();} // leave writer section
     }
 
-    public synchronized void rateOrder(String orderId,int rating){ // O(log R)
-        Order order=orders.get(orderId); // fetch order
-        if(order==null||order.rated)return; // ignore invalid
-        Restaurant r=restaurants.get(order.restaurantId); // fetch restaurant
+    public void rateOrder(String orderId,int rating){ // O(1) below the top, O(K) inside it
+        lock.lock(); // enter writer section
+        try{
+            Order order=orders.remove(orderId); // rated orders leave the map
+            if(order==null)return; // ignore unknown or already rated
+            Restaurant r=restaurants.get(order.restaurantId); // fetch restaurant
+            r.overallRating.addRating(rating); // update overall
+            overallRanking.update(r.overallRating); // reposition overall
+            publishIfDue(overallRanking); // republish only if the top changed
+            RatingAggregate foodRating=r.foodRatings.get(order.foodItemId); // pair created at order time
+            foodRating.addRating(rating); // update food rating
+            TopKRanking ranking=foodRanking.get(order.foodItemId); // food ranking
+            ranking.update(foodRating); // reposition in food ranking
+            publishIfDue(ranking); // republish only if the top changed
+            if(overallWindowRanking!=null){ // streaming windows
+                long today=today(); // rating day
+                rateStreaming(r.streamingRatings,overallWindowRanking,rating,today); // overall windows
+                rateStreaming(r.foodStreamingRatings.get(order.foodItemId),foodWindowRanking.get(order.foodItemId),rating,today); // food windows
+            }
+        }finally{lock.unlock();} // leave writer section
+    }
 
-        overallRanking.remove(r); // remove before update
-        TreeSet<Restaurant> foodSet=foodRanking.get(order.foodItemId); // fetch food set
-        if(foodSet!=null)foodSet.remove(r); // remove from food ranking
+    private long today(){return Math.floorDiv(clock.getAsLong(),DAY_MILLIS);} // epoch day of the clock
 
-        r.overallRating.addRating(rating); // update overall
-        r.foodRatings.putIfAbsent(order.foodItemId,new RatingAggregate()); // ensure food rating
-        r.foodRatings.get(order.foodItemId).addRating(rating); // update food rating
+    public void saveSnapshot(Path path) throws IOException{ // O(state), writers wait, replaces path atomically
+        Path temp=Files.createTempFile(path.toAbsolutePath().getParent(),path.getFileName()+".",".tmp"); // own temp file per save, never a torn snapshot at path
+        lock.lock(); // consistent cut, also orders concurrent saves
+        try{
+            try(SnapshotWriter out=new SnapshotWriter(temp)){
+                out.putInt(SNAPSHOT_MAGIC);out.putDouble(halfLifeDays); // header
+                Map<String,Integer> foodIndex=new HashMap<>(); // food id to table index
+                out.putInt(foodRanking.size()); // food table
+                for(String food:foodRanking.keySet()){foodIndex.put(food,foodIndex.size());out.putString(food);} // each id once
+                Map<String,Integer> restaurantIndex=new HashMap<>(); // restaurant id to table index
+                out.putInt(restaurants.size()); // restaurant table
+                for(Restaurant r:restaurants.values()){ // restaurant with its pairs
+                    restaurantIndex.put(r.restaurantId,restaurantIndex.size()); // index for orders
+                    out.putString(r.restaurantId);out.putInt(r.overallRating.total);out.putInt(r.overallRating.count); // overall
+                    if(r.streamingRatings!=null)for(StreamingRating rating:r.streamingRatings)rating.write(out); // overall windows
+                    out.putInt(r.foodRatings.size()); // pairs
+                    for(Map.Entry<String,RatingAggregate> pair:r.foodRatings.entrySet()){ // each pair
+                        out.putInt(foodIndex.get(pair.getKey()));out.putInt(pair.getValue().total);out.putInt(pair.getValue().count); // food and all-time sums
+                        if(r.foodStreamingRatings!=null)for(StreamingRating rating:r.foodStreamingRatings.get(pair.getKey()))rating.write(out); // food windows
+                    }
+                }
+                out.putInt(orders.size()); // unrated orders
+                for(Order order:orders.values()){out.putString(order.orderId);out.putInt(restaurantIndex.get(order.restaurantId));out.putInt(foodIndex.get(order.foodItemId));} // ids as indexes
+            }
+            Files.move(temp,path,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE); // publish file before another save can
+        }catch(Throwable failure){ // temp must not outlive a failed save
+            try{Files.deleteIfExists(temp);}catch(IOException cleanup){failure.addSuppressed(cleanup);} // never hide the original failure
+            throw failure; // precise rethrow, IOException or unchecked
+        }finally{lock.unlock();} // writers resume
+    }
 
-        overallRanking.add(r); // reinsert
-        if(foodSet!=null)foodSet.add(r); // reinsert into food ranking
+    public static FoodDeliverySystem loadSnapshot(Path path) throws IOException{return loadSnapshot(path,0,System::currentTimeMillis);} // publish on every change
 
-        order.rated=true; // mark rated
+    public static FoodDeliverySystem loadSnapshot(Path path,long maxStalenessMillis,LongSupplier clock) throws IOException{ // O(state) parse plus one sort per ranking
+        MappedByteBuffer in; // file contents
+        try(FileChannel channel=FileChannel.open(path,StandardOpenOption.READ)){in=channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());} // mapping outlives the channel
+        try{
+            if(in.getInt()!=SNAPSHOT_MAGIC)throw new IOException("Not a food delivery snapshot: "+path); // wrong file
+            FoodDeliverySystem system=new FoodDeliverySystem(maxStalenessMillis,clock,in.getDouble()); // same streaming mode
+            system.load(in); // rebuild state
+            return system; // ready to serve
+        }catch(BufferUnderflowException e){throw new IOException("Truncated snapshot: "+path,e);} // short file
     }
 
-    public synchronized List<String> getTopRatedRestaurants(){ // O(K)
-        List<String> result=new ArrayList<>(); // result
-        int count=0; // counter
-        for(Restaurant r:overallRanking){ // iterate sorted
-            if(count==20)break; // limit
-            result.add(r.restaurantId); // add id
-            count++; // inc
+    private static int count(ByteBuffer in) throws IOException{ // table or list length, each entry takes at least one byte
+        int n=in.getInt(); // stored length
+        if(n<0||n>in.remaining())throw new IOException("Corrupt snapshot"); // impossible length
+        return n; // checked length
+    }
+    private static int index(ByteBuffer in,int length) throws IOException{ // reference into a table of length entries
+        int i=in.getInt(); // stored index
+        if(i<0||i>=length)throw new IOException("Corrupt snapshot"); // dangling reference
+        return i; // checked index
+    }
+
+    private void load(ByteBuffer in) throws IOException{ // fills an empty system, rankings built in bulk at the end
+        long today=today(); // streaming windows roll to now
+        String[] foods=new String[count(in)]; // food table
+        for(int f=0;f<foods.length;f++){ // rankings per food
+            foods[f]=SnapshotWriter.getString(in); // food id
+            foodRanking.put(foods[f],new TopKRanking()); // all-time ranking
+            if(foodWindowRanking!=null)foodWindowRanking.put(foods[f],newWindowRankings(today)); // streaming rankings
+        }
+        Restaurant[] byIndex=new Restaurant[count(in)]; // restaurant table
+        for(int i=0;i<byIndex.length;i++){ // restaurant with its pairs
+            Restaurant r=new Restaurant(SnapshotWriter.getString(in)); // restaurant
+            r.overallRating.total=in.getInt();r.overallRating.count=in.getInt(); // overall
+            overallRanking.addUnranked(r.overallRating); // rank later
+            if(overallWindowRanking!=null){r.streamingRatings=loadStreaming(in,r.restaurantId,overallWindowRanking,today);r.foodStreamingRatings=new HashMap<>();} // overall windows
+            for(int pairs=count(in);pairs>0;pairs--){ // each pair
+                String food=foods[index(in,foods.length)]; // food id
+                RatingAggregate foodRating=new RatingAggregate(r.restaurantId); // pair
+                foodRating.total=in.getInt();foodRating.count=in.getInt(); // all-time sums
+                r.foodRatings.put(food,foodRating); // store it
+                foodRanking.get(food).addUnranked(foodRating); // rank later
+                if(foodWindowRanking!=null)r.foodStreamingRatings.put(food,loadStreaming(in,r.restaurantId,foodWindowRanking.get(food),today)); // food windows
+            }
+            restaurants.put(r.restaurantId,r);byIndex[i]=r; // store restaurant
+        }
+        for(int n=count(in);n>0;n--){ // unrated orders
+            String orderId=SnapshotWriter.getString(in); // order id
+            Restaurant r=byIndex[index(in,byIndex.length)]; // restaurant by index
+            orders.put(orderId,new Order(orderId,r.restaurantId,foods[index(in,foods.length)])); // shares interned ids
+        }
+        rankAll(overallRanking); // one sort each
+        for(TopKRanking ranking:foodRanking.values())rankAll(ranking); // food rankings
+        if(overallWindowRanking!=null){ // streaming rankings
+            for(TopKRanking ranking:overallWindowRanking)rankAll(ranking); // overall windows
+            for(WindowRanking[] rankings:foodWindowRanking.values())for(TopKRanking ranking:rankings)rankAll(ranking); // food windows
         }
-        return result; // return
     }
 
-    public synchronized List<String> getTopRestaurantsByFood(String foodItemId){ // O(K)
-        List<String> result=new ArrayList<>(); // result
-        TreeSet<Restaurant> set=foodRanking.get(foodItemId); // get ranking
-        if(set==null)return result; // empty
-        int count=0; // counter
-        for(Restaurant r:set){ // iterate sorted
-            if(count==20)break; // limit
-            result.add(r.restaurantId); // add id
-            count++; // inc
+    private StreamingRating[] loadStreaming(ByteBuffer in,String restaurantId,WindowRanking[] rankings,long today){ // one aggregate per window, rolled to today
+        StreamingRating[] ratings=new StreamingRating[rankings.length]; // by slot
+        for(int w=0;w<rankings.length;w++){ // every window
+            ratings[w]=rankings[w].window.newRating(restaurantId,today,halfLifeDays); // empty aggregate
+            ratings[w].read(in);ratings[w].roll(today); // restore and expire days spent offline
+            rankings[w].addUnranked(ratings[w]); // rank later
         }
-        return result; // return
+        return ratings; // return aggregates
+    }
+
+    private void rankAll(TopKRanking ranking){ranking.rankAll();publishIfDue(ranking);} // bulk rank and publish
+
+    private static WindowRanking[] newWindowRankings(long today){ // one ranking per streaming window
+        WindowRanking[] rankings=new WindowRanking[RatingWindow.STREAMING.length]; // by slot
+        for(int w=0;w<rankings.length;w++)rankings[w]=new WindowRanking(RatingWindow.STREAMING[w],today); // create
+        return rankings; // return rankings
+    }
+
+    private StreamingRating[] addStreaming(String restaurantId,WindowRanking[] rankings){ // O(K) per window, caller holds the lock
+        long today=today(); // creation day
+        StreamingRating[] ratings=new StreamingRating[rankings.length]; // by slot
+        for(int w=0;w<rankings.length;w++){ // every window
+            rankings[w].age(today); // floor must be current before adding
+            ratings[w]=rankings[w].window.newRating(restaurantId,today,halfLifeDays); // unrated aggregate
+            rankings[w].add(ratings[w]); // rank it
+            publishIfDue(rankings[w]); // may enter the top
+        }
+        return ratings; // return aggregates
+    }
+
+    private void rateStreaming(StreamingRating[] ratings,WindowRanking[] rankings,int rating,long today){ // O(1) below the top, O(K) inside it
+        for(int w=0;w<rankings.length;w++){ // every window
+            rankings[w].age(today); // roll members if the day changed
+            ratings[w].addRating(rating,today); // bucket or decay
+            rankings[w].update(ratings[w]); // reposition
+            publishIfDue(rankings[w]); // republish only if the top changed
+        }
+    }
+
+    public List<String> getTopRatedRestaurants(){return getTopRatedSnapshot().getRestaurantIds();} // O(1), lock-free
+
+    public List<String> getTopRestaurantsByFood(String foodItemId){return getTopByFoodSnapshot(foodItemId).getRestaurantIds();} // O(1), lock-free
+
+    public RankingSnapshot getTopRatedSnapshot(){return read(overallRanking);} // versioned overall top K
+
+    public RankingSnapshot getTopByFoodSnapshot(String foodItemId){ // versioned food top K
+        TopKRanking ranking=foodRanking.get(foodItemId); // get ranking
+        return ranking==null?RankingSnapshot.EMPTY:read(ranking); // empty if unknown
+    }
+
+    public List<String> getTopRatedRestaurants(RatingWindow window){return getTopRatedSnapshot(window).getRestaurantIds();} // O(1) within a day
+
+    public List<String> getTopRestaurantsByFood(String foodItemId,RatingWindow window){return getTopByFoodSnapshot(foodItemId,window).getRestaurantIds();} // O(1) within a day
+
+    public RankingSnapshot getTopRatedSnapshot(RatingWindow window){ // versioned overall top K of a window
+        if(window==RatingWindow.ALL_TIME)return getTopRatedSnapshot(); // all-time ranking
+        return read(aged(streaming()[window.ordinal()-1])); // window ranking
+    }
+
+    public RankingSnapshot getTopByFoodSnapshot(String foodItemId,RatingWindow window){ // versioned food top K of a window
+        if(window==RatingWindow.ALL_TIME)return getTopByFoodSnapshot(foodItemId); // all-time ranking
+        streaming(); // fail if off
+        WindowRanking[] rankings=foodWindowRanking.get(foodItemId); // get rankings
+        return rankings==null?RankingSnapshot.EMPTY:read(aged(rankings[window.ordinal()-1])); // empty if unknown
+    }
+
+    private WindowRanking[] streaming(){ // streaming rankings or an error
+        if(overallWindowRanking==null)throw new IllegalStateException("Streaming ratings are off, construct with a half-life"); // misuse
+        return overallWindowRanking; // rankings
+    }
+
+    private TopKRanking aged(WindowRanking ranking){ // rolls a sliding window the first time it is read on a new day
+        long today=today(); // current day
+        if(!ranking.isStale(today))return ranking; // lock-free common case
+        lock.lock(); // once per ranking per day
+        try{ranking.age(today);publishIfDue(ranking);}finally{lock.unlock();} // expire and republish
+        return ranking; // current ranking
+    }
+
+    private RankingSnapshot read(TopKRanking ranking){ // volatile read, helps publish only when a throttled change is overdue
+        if(maxStalenessMillis>0&&ranking.isDue(clock.getAsLong(),maxStalenessMillis)&&lock.tryLock()){ // writers went quiet
+            try{publishIfDue(ranking);}finally{lock.unlock();} // publish pending change
+        }
+        return ranking.snapshot(); // latest published
+    }
+
+    private void publishIfDue(TopKRanking ranking){ // caller holds the lock
+        long now=maxStalenessMillis>0?clock.getAsLong():0; // clock only when throttling
+        if(ranking.isDue(now,maxStalenessMillis))ranking.publish(now); // rebuild changed snapshot
+    }
+}
+final class SnapshotWriter implements AutoCloseable{ // buffered big-endian writes through a file channel
+    private final FileChannel channel; // target file
+    private final ByteBuffer buffer=ByteBuffer.allocateDirect(1<<16); // staging buffer
+    SnapshotWriter(Path path) throws IOException{this.channel=FileChannel.open(path,StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING,StandardOpenOption.WRITE);} // open
+    void putInt(int value) throws IOException{ensure(4);buffer.putInt(value);} // 4 bytes
+    void putLong(long value) throws IOException{ensure(8);buffer.putLong(value);} // 8 bytes
+    void putDouble(double value) throws IOException{ensure(8);buffer.putDouble(value);} // 8 bytes
+    void putString(String value) throws IOException{ // length then UTF-8 bytes
+        byte[] bytes=value.getBytes(StandardCharsets.UTF_8); // encode
+        putInt(bytes.length); // length
+        if(bytes.length>buffer.capacity()){flush();write(ByteBuffer.wrap(bytes));return;} // oversized, bypass buffer
+        ensure(bytes.length);buffer.put(bytes); // bytes
+    }
+    static String getString(ByteBuffer in) throws IOException{ // reads putString
+        int length=in.getInt(); // stored length
+        if(length<0||length>in.remaining())throw new IOException("Corrupt snapshot"); // impossible length
+        byte[] bytes=new byte[length]; // length
+        in.get(bytes); // bytes
+        return new String(bytes,StandardCharsets.UTF_8); // decode
+    }
+    private void ensure(int bytes) throws IOException{if(buffer.remaining()<bytes)flush();} // room for next value
+    private void flush() throws IOException{buffer.flip();write(buffer);buffer.clear();} // drain staging buffer
+    private void write(ByteBuffer source) throws IOException{while(source.hasRemaining())channel.write(source);} // partial writes
+    @Override public void close() throws IOException{
+        try{flush();channel.force(false);}finally{channel.close();} // durable before the rename
+    }
+}
+
+class FoodShard{ // restaurants hashed to one stripe, their rankings folded under one lock
+    final ReentrantLock lock=new ReentrantLock(); // guards rankings and registration
+    final Map<String,Restaurant> restaurants=new ConcurrentHashMap<>(); // lock-free lookup on the order path
+    final TopKRanking overallRanking=new TopKRanking(); // best restaurants of this stripe
+    final Map<String,TopKRanking> foodRanking=new ConcurrentHashMap<>(); // best of this stripe per food
+    private final Queue<StripedRating> pending=new ConcurrentLinkedQueue<>(); // aggregates rated since their last fold
+    private final List<TopKRanking> touched=new ArrayList<>(); // rankings to republish after a fold, lock holder only
+    Restaurant register(String restaurantId,String foodItemId){ // O(K), once per restaurant and food pair
+        lock.lock(); // enter stripe
+        try{
+            Restaurant r=restaurants.get(restaurantId); // fetch restaurant
+            if(r==null){ // first order of restaurant
+                r=new Restaurant(restaurantId,new StripedRating(restaurantId,overallRanking),new ConcurrentHashMap<>()); // striped counters
+                overallRanking.add(r.overallRating); // rank it
+                restaurants.put(restaurantId,r); // visible to the lock-free path
+            }
+            if(!r.foodRatings.containsKey(foodItemId)){ // first order of this food here
+                TopKRanking ranking=foodRanking.computeIfAbsent(foodItemId,k->new TopKRanking()); // food ranking
+                StripedRating foodRating=new StripedRating(restaurantId,ranking); // unrated pair
+                ranking.add(foodRating); // rank it
+                r.foodRatings.put(foodItemId,foodRating); // visible to the lock-free path
+                if(ranking.isDirty())ranking.publish(0); // new pair may enter the top
+            }
+            if(overallRanking.isDirty())overallRanking.publish(0); // new restaurant may enter the top
+            return r; // registered
+        }finally{lock.unlock();} // leave stripe
+    }
+    void record(StripedRating aggregate,int rating){if(aggregate.record(rating))pending.add(aggregate);} // lock-free, queued once per fold
+    void drain(){ // whoever holds the lock folds every rater's pending ratings, the rest return at once
+        while(!pending.isEmpty()&&lock.tryLock()){ // recheck after unlock so no rating is stranded
+            try{
+                StripedRating aggregate; // next pending
+                while((aggregate=pending.poll())!=null){ // fold all
+                    TopKRanking ranking=aggregate.ranking; // owning ranking
+                    boolean wasDirty=ranking.isDirty(); // already scheduled
+                    aggregate.fold(); // take the striped sums
+                    ranking.update(aggregate); // reposition
+                    if(!wasDirty&&ranking.isDirty())touched.add(ranking); // schedule republish
+                }
+                for(TopKRanking ranking:touched)ranking.publish(0); // once per ranking per fold
+                touched.clear(); // reuse list
+            }finally{lock.unlock();} // leave stripe
+        }
+    }
+}
+
+final class OpenOrder{ // order awaiting its rating, points straight at the counters it will bump
+    final FoodShard shard; // restaurant stripe
+    final StripedRating overallRating; // restaurant counters
+    final StripedRating foodRating; // restaurant and food counters
+    OpenOrder(FoodShard shard,StripedRating overallRating,StripedRating foodRating){this.shard=shard;this.overallRating=overallRating;this.foodRating=foodRating;} // constructor
+}
+
+class ConcurrentFoodDeliverySystem{ // restaurants sharded over stripes, ratings striped, rankings merged from stripes on read
+    private final FoodShard[] shards; // restaurant stripes, power of two
+    private final Map<String,OpenOrder> orders=new ConcurrentHashMap<>(); // unrated orders only
+    private final RankingSnapshot emptyView; // merge of all-empty stripes
+    private final AtomicReference<RankingSnapshot> overallView; // last merged overall top K
+    private final Map<String,RankingSnapshot> foodViews=new ConcurrentHashMap<>(); // last merged top K per food
+    public ConcurrentFoodDeliverySystem(){this(4*Runtime.getRuntime().availableProcessors());} // default stripes
+    public ConcurrentFoodDeliverySystem(int shardCount){
+        int size=Integer.highestOneBit(Math.max(1,shardCount-1))<<1; // round up to power of two
+        this.shards=new FoodShard[size]; // allocate stripes
+        for(int i=0;i<size;i++)shards[i]=new FoodShard(); // create stripe
+        RankingSnapshot[] empty=new RankingSnapshot[size]; // one empty part per stripe
+        Arrays.fill(empty,RankingSnapshot.EMPTY); // nothing published
+        this.emptyView=RankingSnapshot.merge(empty,0); // empty merged view
+        this.overallView=new AtomicReference<>(emptyView); // start empty
+    }
+    private FoodShard shard(String restaurantId){int h=restaurantId.hashCode();return shards[(h^(h>>>16))&(shards.length-1)];} // spread hash over stripes
+
+    public void orderFood(String orderId,String restaurantId,String foodItemId){ // O(1) lock-free, O(K) under the stripe lock for a new pair
+        FoodShard shard=shard(restaurantId); // restaurant stripe
+        Restaurant r=shard.restaurants.get(restaurantId); // fetch restaurant
+        if(r==null||!r.foodRatings.containsKey(foodItemId))r=shard.register(restaurantId,foodItemId); // first order of restaurant or pair
+        orders.put(orderId,new OpenOrder(shard,(StripedRating)r.overallRating,(StripedRating)r.foodRatings.get(foodItemId))); // store order, a reused id replaces it
+    }
+
+    public void rateOrder(String orderId,int rating){ // O(1) striped add, folding is shared by whoever holds the stripe
+        OpenOrder order=orders.remove(orderId); // rated orders leave the map, a second rating finds nothing
+        if(order==null)return; // ignore unknown or already rated
+        order.shard.record(order.overallRating,rating); // bump restaurant
+        order.shard.record(order.foodRating,rating); // bump pair
+        order.shard.drain(); // fold now unless another thread is
+    }
+
+    public int openOrders(){return orders.size();} // orders still awaiting a rating
+
+    public List<String> getTopRatedRestaurants(){return getTopRatedSnapshot().getRestaurantIds();} // O(stripes) when unchanged
+
+    public List<String> getTopRestaurantsByFood(String foodItemId){return getTopByFoodSnapshot(foodItemId).getRestaurantIds();} // O(stripes) when unchanged
+
+    public RankingSnapshot getTopRatedSnapshot(){ // merged overall top K
+        RankingSnapshot cached=overallView.get(),merged=merge(cached,null); // remerge only if a stripe republished
+        if(merged!=cached)overallView.compareAndSet(cached,merged); // first merger publishes
+        return merged; // return view
+    }
+
+    public RankingSnapshot getTopByFoodSnapshot(String foodItemId){ // merged food top K
+        RankingSnapshot cached=foodViews.getOrDefault(foodItemId,emptyView),merged=merge(cached,foodItemId); // remerge only if a stripe republished
+        if(merged!=cached){if(cached==emptyView)foodViews.putIfAbsent(foodItemId,merged);else foodViews.replace(foodItemId,cached,merged);} // first merger publishes
+        return merged; // return view
+    }
+
+    private RankingSnapshot merge(RankingSnapshot cached,String foodItemId){ // O(stripes) check, O(stripes*K) merge
+        RankingSnapshot[] sources=cached.sources; // parts of the cached view
+        int i=0; // stripes still matching the cache
+        while(i<shards.length&&part(shards[i],foodItemId)==sources[i])i++; // compare published snapshots
+        if(i==shards.length)return cached; // nothing changed
+        RankingSnapshot[] parts=Arrays.copyOf(sources,shards.length); // unchanged prefix
+        for(;i<shards.length;i++)parts[i]=part(shards[i],foodItemId); // current snapshots
+        return RankingSnapshot.merge(parts,cached.getVersion()+1); // next version
+    }
+
+    private static RankingSnapshot part(FoodShard shard,String foodItemId){ // stripe snapshot, null food means overall
+        shard.drain(); // fold ratings nobody folded yet
+        TopKRanking ranking=foodItemId==null?shard.overallRanking:shard.foodRanking.get(foodItemId); // stripe ranking
+        return ranking==null?RankingSnapshot.EMPTY:ranking.snapshot(); // published top K
+    }
+}
+
+class FoodStress{ // many order desks order and rate in parallel and check the merged rankings against the single-lock system
+    static void run(int restaurantCount,int opsPerThread){
+        int maxThreads=Math.max(2,Runtime.getRuntime().availableProcessors()); // up to core count
+        String[] foodIds={"Burger","Pizza","Biryani","Dosa"}; // menu
+        double base=0; // single desk throughput
+        for(int threads=1;threads<=maxThreads;threads*=2){ // double desks each round
+            ConcurrentFoodDeliverySystem service=new ConcurrentFoodDeliverySystem(); // striped system
+            FoodDeliverySystem locked=new FoodDeliverySystem(); // single-lock baseline
+            long nanos=drive(threads,(desk,i)->{ // order then rate, with repeats and bogus ids
+                String orderId=desk+"-"+i; // unique order
+                int n=desk*opsPerThread+i; // global op number
+                service.orderFood(orderId,"R"+(int)((n*2654435761L)%restaurantCount),foodIds[n%foodIds.length]); // order
+                service.rateOrder(orderId,1+n%5); // rate
+                if((i&7)==0)service.rateOrder(orderId,5); // second rating must be ignored
+            },opsPerThread);
+            long lockedNanos=drive(threads,(desk,i)->{ // same workload, one lock
+                String orderId=desk+"-"+i; // unique order
+                int n=desk*opsPerThread+i; // global op number
+                locked.orderFood(orderId,"R"+(int)((n*2654435761L)%restaurantCount),foodIds[n%foodIds.length]); // order
+                locked.rateOrder(orderId,1+n%5); // rate
+                if((i&7)==0)locked.rateOrder(orderId,5); // ignored
+            },opsPerThread);
+            int violations=0; // rankings that differ
+            if(!service.getTopRatedRestaurants().equals(locked.getTopRatedRestaurants()))violations++; // overall
+            for(String food:foodIds)if(!service.getTopRestaurantsByFood(food).equals(locked.getTopRestaurantsByFood(food)))violations++; // per food
+            if(service.openOrders()!=0)violations++; // rated orders must be evicted
+            double perSec=(double)threads*opsPerThread*1e9/nanos,lockedPerSec=(double)threads*opsPerThread*1e9/lockedNanos; // throughput
+            if(threads==1)base=perSec; // baseline
+            System.out.printf("desks=%d ops/s=%.0f speedup=%.2f global-lock ops/s=%.0f violations=%d%n",threads,perSec,perSec/base,lockedPerSec,violations); // report
+            if(violations>0)throw new IllegalStateException("Rankings diverged under "+threads+" desks"); // fail loudly
+        }
+    }
+    private static long drive(int threads,BiConsumer<Integer,Integer> op,int opsPerThread){ // nanos for every desk to finish
+        List<Thread> desks=new ArrayList<>(); // desk threads
+        long start=System.nanoTime(); // time before
+        for(int t=0;t<threads;t++){ // start desks
+            final int desk=t; // desk id
+            Thread thread=new Thread(()->{for(int i=0;i<opsPerThread;i++)op.accept(desk,i);}); // fixed work per desk
+            desks.add(thread);thread.start(); // run
+        }
+        for(Thread thread:desks){try{thread.join();}catch(InterruptedException e){Thread.currentThread().interrupt();break;}} // wait for desks
+        return System.nanoTime()-start; // elapsed
+    }
+}
+
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
+    }
+}
+class FoodDeliveryBench{ // java FoodOrderingSystem.java bench [restaurants] [foods] [ops]
+    static void run(String[] args){
+        int restaurantCount=Bench.param(args,1,10_000); // restaurants
+        int foodCount=Bench.param(args,2,50); // food items
+        int ops=Bench.param(args,3,200_000); // ops per pass
+        String[] restaurantIds=new String[restaurantCount]; // restaurant ids
+        for(int r=0;r<restaurantCount;r++)restaurantIds[r]="R"+r; // name restaurants
+        String[] foodIds=new String[foodCount]; // food ids
+        for(int f=0;f<foodCount;f++)foodIds[f]="F"+f; // name foods
+        String[] orderIds=new String[ops]; // pre-built order ids
+        for(int i=0;i<ops;i++)orderIds[i]="O"+i; // name orders
+        Supplier<FoodDeliverySystem> seeded=()->seed(new FoodDeliverySystem(),restaurantIds,foodIds); // publishes on every change
+        Bench.measure("FoodDeliverySystem orderFood",ops,()->{
+            FoodDeliverySystem system=seeded.get(); // fresh system
+            return i->system.orderFood(orderIds[i],restaurantIds[(int)((i*2654435761L)%restaurantCount)],foodIds[i%foodCount]); // spread orders
+        });
+        Bench.measure("FoodDeliverySystem rateOrder",ops,()->{
+            FoodDeliverySystem system=seeded.get(); // fresh system
+            for(int i=0;i<ops;i++)system.orderFood(orderIds[i],restaurantIds[(int)((i*2654435761L)%restaurantCount)],foodIds[i%foodCount]); // open orders
+            return i->system.rateOrder(orderIds[i],1+i%5); // rate order
+        });
+        Bench.measure("FoodDeliverySystem rateOrder 100ms staleness",ops,()->{
+            FoodDeliverySystem system=seed(new FoodDeliverySystem(100,System::currentTimeMillis),restaurantIds,foodIds); // throttled publishing
+            for(int i=0;i<ops;i++)system.orderFood(orderIds[i],restaurantIds[(int)((i*2654435761L)%restaurantCount)],foodIds[i%foodCount]); // open orders
+            return i->system.rateOrder(orderIds[i],1+i%5); // rate order
+        });
+        Bench.measure("FoodDeliverySystem rateOrder streaming",ops,()->{
+            long[] now={0}; // one hour per thousand ratings
+            FoodDeliverySystem system=seed(new FoodDeliverySystem(0,()->now[0],7),restaurantIds,foodIds); // 7, 30 day and decayed rankings too
+            for(int i=0;i<ops;i++)system.orderFood(orderIds[i],restaurantIds[(int)((i*2654435761L)%restaurantCount)],foodIds[i%foodCount]); // open orders
+            return i->{now[0]+=3_600;system.rateOrder(orderIds[i],1+i%5);}; // rate order, days roll during the pass
+        });
+        Bench.measure("FoodDeliverySystem top 7 days",ops,()->{
+            FoodDeliverySystem system=seed(new FoodDeliverySystem(0,System::currentTimeMillis,7),restaurantIds,foodIds); // streaming system
+            return i->system.getTopRatedRestaurants(RatingWindow.LAST_7_DAYS); // windowed home page read
+        });
+        Bench.measure("FoodDeliverySystem top overall",ops,()->{
+            FoodDeliverySystem system=seeded.get(); // fresh system
+            return i->system.getTopRatedRestaurants(); // home page read
+        });
+        Bench.measure("FoodDeliverySystem top by food",ops,()->{
+            FoodDeliverySystem system=seeded.get(); // fresh system
+            return i->system.getTopRestaurantsByFood(foodIds[i%foodCount]); // food page read
+        });
+        Bench.measure("ConcurrentFoodDelivery orderFood",ops,()->{
+            ConcurrentFoodDeliverySystem system=seed(new ConcurrentFoodDeliverySystem(),restaurantIds,foodIds); // fresh system
+            return i->system.orderFood(orderIds[i],restaurantIds[(int)((i*2654435761L)%restaurantCount)],foodIds[i%foodCount]); // spread orders
+        });
+        Bench.measure("ConcurrentFoodDelivery rateOrder",ops,()->{
+            ConcurrentFoodDeliverySystem system=seed(new ConcurrentFoodDeliverySystem(),restaurantIds,foodIds); // fresh system
+            for(int i=0;i<ops;i++)system.orderFood(orderIds[i],restaurantIds[(int)((i*2654435761L)%restaurantCount)],foodIds[i%foodCount]); // open orders
+            return i->system.rateOrder(orderIds[i],1+i%5); // rate order
+        });
+        Bench.measure("ConcurrentFoodDelivery top overall",ops,()->{
+            ConcurrentFoodDeliverySystem system=seed(new ConcurrentFoodDeliverySystem(),restaurantIds,foodIds); // fresh system
+            return i->system.getTopRatedRestaurants(); // merged view, cached
+        });
+        for(int round=0;round<3;round++)restart(restaurantIds,foodIds,restaurantCount*100,false); // compile both paths before timing
+        restart(restaurantIds,foodIds,restaurantCount*100,true); // restart-to-serving
+    }
+    static void restart(String[] restaurantIds,String[] foodIds,int events,boolean report){ // restart-to-serving: replaying the order log against loading a snapshot
+        Random random=new Random(7); // fixed seed
+        String[] restaurant=new String[events],food=new String[events]; // order log
+        for(int i=0;i<events;i++){restaurant[i]=restaurantIds[random.nextInt(restaurantIds.length)];food[i]=foodIds[random.nextInt(foodIds.length)];} // random orders
+        long start=System.nanoTime(); // replay start
+        FoodDeliverySystem replayed=new FoodDeliverySystem(); // cold system
+        for(int i=0;i<events;i++){String orderId="L"+i;replayed.orderFood(orderId,restaurant[i],food[i]);if(i%10!=0)replayed.rateOrder(orderId,1+i%5);} // every tenth order stays unrated
+        List<String> expected=replayed.getTopRatedRestaurants(); // first served read
+        long replayNanos=System.nanoTime()-start; // replay time
+        try{
+            Path path=Files.createTempFile("food-delivery",".snapshot"); // scratch file
+            try{
+                start=System.nanoTime(); // save start
+                replayed.saveSnapshot(path); // write snapshot
+                long saveNanos=System.nanoTime()-start; // save time
+                start=System.nanoTime(); // load start
+                FoodDeliverySystem loaded=FoodDeliverySystem.loadSnapshot(path); // mapped load, bulk rank
+                List<String> served=loaded.getTopRatedRestaurants(); // first served read
+                long loadNanos=System.nanoTime()-start; // restart time
+                if(!served.equals(expected))throw new IllegalStateException("Snapshot ranking differs from replay"); // fail loudly
+                if(report)System.out.printf("%-32s events=%,d replay=%,dms save=%,dms load=%,dms bytes=%,d%n","FoodDeliverySystem restart",events,replayNanos/1_000_000,saveNanos/1_000_000,loadNanos/1_000_000,Files.size(path)); // report
+            }finally{Files.deleteIfExists(path);} // clean up
+        }catch(IOException e){throw new UncheckedIOException(e);} // bench has nowhere to recover
+    }
+    static ConcurrentFoodDeliverySystem seed(ConcurrentFoodDeliverySystem system,String[] restaurantIds,String[] foodIds){ // same history for the striped system
+        Random random=new Random(42); // fixed seed
+        for(int i=0;i<restaurantIds.length*4;i++){ // seed history
+            String orderId="H"+i; // history order
+            system.orderFood(orderId,restaurantIds[i%restaurantIds.length],foodIds[random.nextInt(foodIds.length)]); // order
+            system.rateOrder(orderId,1+random.nextInt(5)); // rate
+        }
+        return system; // return system
+    }
+    static FoodDeliverySystem seed(FoodDeliverySystem system,String[] restaurantIds,String[] foodIds){ // every restaurant gets a few ratings
+        Random random=new Random(42); // fixed seed
+        for(int i=0;i<restaurantIds.length*4;i++){ // seed history
+            String orderId="H"+i; // history order
+            system.orderFood(orderId,restaurantIds[i%restaurantIds.length],foodIds[random.nextInt(foodIds.length)]); // order
+            system.rateOrder(orderId,1+random.nextInt(5)); // rate
+        }
+        return system; // return system
     }
 }
 
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){FoodDeliveryBench.run(args);return;} // java FoodOrderingSystem.java bench
+        if(args.length>0&&"stress".equals(args[0])){FoodStress.run(5_000,200_000);return;} // java FoodOrderingSystem.java stress
         FoodDeliverySystem system=new FoodDeliverySystem(); // create system
         system.orderFood("O1","R1","Burger"); // order
         system.orderFood("O2","R2","Burger"); // order
@@ -1,62 +1,659 @@
 import java.util.*; // import utility classes
-class User{
-    String userId; // user identifier
-    Set<String> playerIds; // players in team
-    int score; // current team score
-    public User(String userId,Set<String> playerIds,int score){this.userId=userId;this.playerIds=playerIds;this.score=score;} // constructor
+import java.util.concurrent.*; // import fork-join
+import java.util.concurrent.atomic.*; // import atomics
+import java.util.concurrent.locks.*; // import park and unpark
+import java.util.function.*; // import functional interfaces
+abstract class IdTable{ // string ids interned to dense int indexes in insertion order
+    abstract int find(String id); // index of id, -1 if absent
+    abstract int add(String id); // O(1) amortized, id must be absent, returns the next index
+    abstract String get(int index); // id at index
+    abstract int compare(int a,int b); // same order as String.compareTo
+    abstract int size(); // ids stored
 }
-class Leaderboard{
-    private Map<String,Integer> playerScores; // map of player to cumulative score
-    private Map<String,User> users; // map of userId to User
-    private Map<String,Set<String>> playerToUsers; // reverse mapping player -> users
-    private TreeSet<User> ranking; // sorted leaderboard
-    public Leaderboard(){
-        this.playerScores=new HashMap<>(); // initialize player score map
-        this.users=new HashMap<>(); // initialize user map
-        this.playerToUsers=new HashMap<>(); // initialize reverse map
-        this.ranking=new TreeSet<>((a,b)->{ // custom comparator
-            if(a.score!=b.score)return Integer.compare(b.score,a.score); // score descending
-            return a.userId.compareTo(b.userId); // tie-break lex ascending
-        });
+final class StringIdTable extends IdTable{ // ids as Strings behind a HashMap, the default mode
+    private final Map<String,Integer> index=new HashMap<>(); // id to index
+    private String[] ids=new String[16]; // id per index
+    int find(String id){Integer i=index.get(id);return i==null?-1:i;} // boxed lookup
+    int add(String id){
+        int i=index.size(); // next index
+        if(i==ids.length)ids=Arrays.copyOf(ids,i*2); // grow column
+        ids[i]=id;index.put(id,i); // store both ways
+        return i; // new index
     }
-    public synchronized void addUser(String userId,List<String> playerIds){ // O(P log N)
-        if(users.containsKey(userId))return; // ignore duplicate user
-        Set<String> team=new HashSet<>(playerIds); // create team set
-        int totalScore=0; // initialize team score
-        for(String playerId:team){ // iterate players
-            int playerScore=playerScores.getOrDefault(playerId,0); // fetch existing score
-            totalScore+=playerScore; // accumulate
-            playerToUsers.putIfAbsent(playerId,new HashSet<>()); // ensure reverse map exists
-            playerToUsers.get(playerId).add(userId); // map player to this user
-        }
-        User user=new User(userId,team,totalScore); // create user
-        users.put(userId,user); // store user
-        ranking.add(user); // insert into leaderboard
-    }
-    public synchronized void addScore(String playerId,int delta){ // O(U log N)
-        int newScore=playerScores.getOrDefault(playerId,0)+delta; // update player score
-        playerScores.put(playerId,newScore); // store updated score
-        Set<String> affectedUsers=playerToUsers.getOrDefault(playerId,Collections.emptySet()); // get affected users
-        for(String userId:affectedUsers){ // update each affected user
-            User user=users.get(userId); // fetch user
-            ranking.remove(user); // remove before modifying score
-            user.score+=delta; // update team score
-            ranking.add(user); // reinsert to maintain ordering
-        }
-    }
-    public synchronized List<String> getTopK(int k){ // O(K)
+    String get(int index){return ids[index];} // stored String
+    int compare(int a,int b){return ids[a].compareTo(ids[b]);} // String order
+    int size(){return index.size();} // ids stored
+}
+final class ArenaIdTable extends IdTable{ // chars of every id in one shared array with an open-addressing lookup, no String, Integer or map node per id
+    private char[] chars=new char[256]; // id chars back to back
+    private int[] starts=new int[17]; // id i spans chars[starts[i], starts[i+1])
+    private int[] slots=new int[32]; // index+1 per hash slot, 0 is empty, kept at most half full
+    private int count; // ids stored
+    int find(String id){
+        int mask=slots.length-1; // power of two table
+        for(int s=slot(id.hashCode(),mask);slots[s]!=0;s=(s+1)&mask)if(matches(slots[s]-1,id))return slots[s]-1; // linear probe
+        return -1; // absent
+    }
+    int add(String id){
+        int n=id.length(),end=starts[count]; // id length, arena end
+        if(end+n>chars.length)chars=Arrays.copyOf(chars,Math.max(chars.length*2,end+n)); // grow arena
+        if(count+2>starts.length)starts=Arrays.copyOf(starts,starts.length*2); // grow offsets
+        id.getChars(0,n,chars,end);starts[count+1]=end+n; // append chars
+        if((count+1)*2>slots.length)rehash(slots.length*2); // keep load at most one half
+        place(count,id.hashCode()); // index it
+        return count++; // new index
+    }
+    String get(int index){return new String(chars,starts[index],starts[index+1]-starts[index]);} // materialized on read only
+    int compare(int a,int b){ // UTF-16 code unit order like String.compareTo
+        int i=starts[a],j=starts[b],la=starts[a+1]-i,lb=starts[b+1]-j,n=Math.min(la,lb); // spans
+        for(int k=0;k<n;k++){char x=chars[i+k],y=chars[j+k];if(x!=y)return x-y;} // first difference
+        return la-lb; // shorter first
+    }
+    int size(){return count;} // ids stored
+    private boolean matches(int index,String id){ // arena span equals id
+        int start=starts[index],n=id.length(); // span start
+        if(starts[index+1]-start!=n)return false; // length differs
+        for(int k=0;k<n;k++)if(chars[start+k]!=id.charAt(k))return false; // char differs
+        return true; // same id
+    }
+    private void place(int index,int hash){ // insert index at its first free slot
+        int mask=slots.length-1,s=slot(hash,mask); // home slot
+        while(slots[s]!=0)s=(s+1)&mask; // linear probe
+        slots[s]=index+1; // occupy
+    }
+    private void rehash(int capacity){ // O(total chars), hashes recomputed from the arena
+        slots=new int[capacity]; // fresh table
+        for(int i=0;i<count;i++){int h=0;for(int k=starts[i];k<starts[i+1];k++)h=31*h+chars[k];place(i,h);} // String.hashCode over the span
+    }
+    private static int slot(int hash,int mask){hash*=0x9E3779B9;return (hash^(hash>>>16))&mask;} // spread sequential ids
+}
+abstract class TeamIndex{ // reverse index player -> owning users
+    int rowStart,rowEnd; // bounds of the users returned by the last row call
+    abstract void add(int player,int user); // user now owns player
+    abstract int[] row(int player); // owners of player in [rowStart, rowEnd) of the returned array, valid until the next call
+}
+final class RowTeamIndex extends TeamIndex{ // one growable int row per player, the default mode
+    private static final int[] EMPTY=new int[0]; // row of a player nobody owns
+    private int[][] rows=new int[16][]; // users per player
+    private int[] counts=new int[16]; // used length of each row
+    void add(int player,int user){
+        if(player>=rows.length){rows=Arrays.copyOf(rows,Math.max(rows.length*2,player+1));counts=Arrays.copyOf(counts,rows.length);} // grow columns
+        if(rows[player]==null)rows[player]=new int[4]; // small row
+        if(counts[player]==rows[player].length)rows[player]=Arrays.copyOf(rows[player],rows[player].length*2); // grow row
+        rows[player][counts[player]++]=user; // append
+    }
+    int[] row(int player){
+        rowStart=0;rowEnd=player<counts.length?counts[player]:0; // whole used row
+        return player<rows.length&&rows[player]!=null?rows[player]:EMPTY; // used row
+    }
+}
+final class CsrTeamIndex extends TeamIndex{ // compressed sparse rows: one exact-size int[] of owners plus offsets, recent adds in small tails folded in periodically
+    private static final int MIN_TAIL_EDGES=1<<12; // tail edges tolerated before compacting
+    private int[] offsets=new int[1]; // owners of player p are adjacency[offsets[p], offsets[p+1]) for p < players
+    private int[] adjacency=new int[0]; // owners of every compacted player back to back
+    private int players; // players covered by offsets
+    private int[][] tails=new int[16][]; // owners added since the last compaction, per player
+    private int[] tailCounts=new int[16]; // used length of each tail
+    private int tailEdges; // owners waiting in tails
+    private int[] scratch=new int[16]; // row plus tail for players with pending owners
+    void add(int player,int user){
+        if(player>=tails.length){tails=Arrays.copyOf(tails,Math.max(tails.length*2,player+1));tailCounts=Arrays.copyOf(tailCounts,tails.length);} // grow columns
+        if(tails[player]==null)tails[player]=new int[4]; // small tail
+        if(tailCounts[player]==tails[player].length)tails[player]=Arrays.copyOf(tails[player],tails[player].length*2); // grow tail
+        tails[player][tailCounts[player]++]=user; // append
+        if(++tailEdges>Math.max(MIN_TAIL_EDGES,adjacency.length>>3))compact(); // amortized O(1) per add
+    }
+    int[] row(int player){
+        int start=player<players?offsets[player]:0,end=player<players?offsets[player+1]:0; // compacted span
+        int tail=player<tailCounts.length?tailCounts[player]:0; // pending owners
+        if(tail==0){rowStart=start;rowEnd=end;return adjacency;} // common case, no copy
+        int n=end-start+tail; // joined length
+        if(scratch.length<n)scratch=new int[Math.max(n,scratch.length*2)]; // grow scratch
+        System.arraycopy(adjacency,start,scratch,0,end-start);System.arraycopy(tails[player],0,scratch,end-start,tail); // join
+        rowStart=0;rowEnd=n; // scratch bounds
+        return scratch; // joined row
+    }
+    private void compact(){ // O(edges), folds every tail into a fresh exact-size adjacency
+        int total=Math.max(players,tails.length); // players seen so far
+        int[] nextOffsets=new int[total+1],next=new int[adjacency.length+tailEdges]; // exact sizes
+        int m=0; // write position
+        for(int p=0;p<total;p++){ // player by player
+            nextOffsets[p]=m; // row start
+            if(p<players){int n=offsets[p+1]-offsets[p];System.arraycopy(adjacency,offsets[p],next,m,n);m+=n;} // compacted owners
+            if(p<tails.length&&tailCounts[p]>0){System.arraycopy(tails[p],0,next,m,tailCounts[p]);m+=tailCounts[p];tails[p]=null;tailCounts[p]=0;} // pending owners
+        }
+        nextOffsets[total]=m; // end of last row
+        offsets=nextOffsets;adjacency=next;players=total;tailEdges=0; // publish
+        scratch=new int[16]; // drop a large joined row
+    }
+}
+class RankTree{ // every user as an int index in an order-statistic treap, score desc then userId asc, nodes are parallel primitive arrays
+    private static final int NIL=-1; // empty child
+    private final IdTable ids; // userId per index
+    int[] scores=new int[16]; // team score per index
+    private int[] left=new int[16],right=new int[16],sizes=new int[16],priorities=new int[16]; // treap links, subtree sizes, heap keys
+    private int root=NIL; // tree root
+    private int count; // users stored
+    private int[] stamp=new int[16]; // batch mark per user
+    private int epoch; // current batch mark
+    private int[] order=new int[0],shifted=new int[0],merged=new int[0],stack=new int[0]; // bulk scratch, reused
+    private final Random random=new Random(42); // priority source, fixed for reproducible shapes
+    RankTree(IdTable ids){this.ids=ids;} // ids interned by the caller's table
+    int size(){return count;} // users stored
+    int find(String id){return ids.find(id);} // index of id, -1 if absent
+    int add(String id,int score){ // O(log N) expected, returns the new index
+        if(count==scores.length)grow(); // make room
+        int u=count++; // next index
+        ids.add(id);scores[u]=score;priorities[u]=random.nextInt(); // user columns, id index matches u
+        left[u]=right[u]=NIL;sizes[u]=1; // leaf
+        root=insert(root,u); // rank it
+        return u; // index
+    }
+    void shift(int u,int delta){ // O(log N), one user
+        root=remove(root,u); // unlink under the old key
+        scores[u]+=delta;left[u]=right[u]=NIL;sizes[u]=1; // new key, detached leaf
+        root=insert(root,u); // rank under the new key
+    }
+    void shiftAll(int[] users,int from,int to,int delta){ // users[from, to) each gain delta, O(n log N) or O(N) whichever is cheaper
+        if(from==to||delta==0)return; // order unchanged
+        if(!bulk(to-from)){for(int i=from;i<to;i++)shift(users[i],delta);return;} // few users, reinsert each
+        epoch++; // new mark
+        ForkJoinPool.commonPool().invoke(new FanOutTask(users,null,stamp,scores,epoch,delta,from,to)); // mark and bump in parallel, users are distinct
+        remerge(false); // equal deltas keep the shifted run sorted
+    }
+    void shiftEach(int[] users,int[] deltas,int n){ // each listed user gains its own delta, users distinct
+        if(!bulk(n)){for(int i=0;i<n;i++)if(deltas[i]!=0)shift(users[i],deltas[i]);return;} // few users, reinsert each
+        epoch++; // new mark
+        ForkJoinPool.commonPool().invoke(new FanOutTask(users,deltas,stamp,scores,epoch,0,0,n)); // mark and bump in parallel
+        remerge(true); // mixed deltas, the shifted run needs a sort
+    }
+    private boolean bulk(int n){return (long)n*(32-Integer.numberOfLeadingZeros(count))>=count;} // n log N reinserts cost more than one O(N) rebuild
+    private void remerge(boolean sortShifted){ // O(N + S log S) for S stamped users, rebuilds the treap
+        if(order.length<count){order=new int[scores.length];shifted=new int[scores.length];merged=new int[scores.length];} // scratch
+        inorder(); // old order, untouched users are still sorted
+        int a=0,b=0,m=0; // heads of the two runs and output
+        int rest=0; // untouched run length, compacted in place in order
+        for(int i=0;i<count;i++){int u=order[i];if(stamp[u]==epoch)shifted[a++]=u;else order[rest++]=u;} // stable partition
+        int na=a;a=0; // shifted run bounds
+        if(sortShifted)sortRun(na); // order shifted users by new key
+        while(a<na&&b<rest)merged[m++]=compare(shifted[a],order[b])<0?shifted[a++]:order[b++]; // merge by new scores
+        while(a<na)merged[m++]=shifted[a++]; // tail
+        while(b<rest)merged[m++]=order[b++]; // tail
+        root=build(merged,count); // O(N) rebuild
+    }
+    int rankOf(int u){ // O(log N), users ranked strictly ahead of u
+        int rank=0,t=root; // accumulated rank
+        while(t!=u){ // descend by u's key
+            if(compare(u,t)<0)t=left[t];else{rank+=size(left[t])+1;t=right[t];} // ahead of t or behind it
+        }
+        return rank+size(left[u]); // plus u's left subtree
+    }
+    int countAtLeast(long score){ // O(log N), users scoring score or more
+        int n=0,t=root; // accumulated count
+        while(t!=NIL){ // descend by score only
+            if(scores[t]>=score){n+=size(left[t])+1;t=right[t];}else t=left[t]; // t and everything ahead of it qualify
+        }
+        return n; // count
+    }
+    List<String> slice(int from,int k){ // O(k + log N), k users starting at rank from
         List<String> result=new ArrayList<>(); // result list
-        int count=0; // counter
-        for(User user:ranking){ // iterate sorted leaderboard
-            if(count==k)break; // stop at k
-            result.add(user.userId); // add userId
-            count++; // increment counter
+        if(stack.length<scores.length)stack=new int[scores.length]; // path stack
+        int depth=0,t=root,skip=from; // walk state
+        while(t!=NIL){ // descend to rank from, stacking nodes still to visit
+            int l=size(left[t]); // ranks in left subtree
+            if(skip<l){stack[depth++]=t;t=left[t];} // target on the left, visit t later
+            else if(skip==l){stack[depth++]=t;break;} // t is the target
+            else{skip-=l+1;t=right[t];} // target on the right, t is skipped
+        }
+        t=NIL; // resume from the stack
+        while(result.size()<k&&(t!=NIL||depth>0)){ // in order
+            while(t!=NIL){stack[depth++]=t;t=left[t];} // leftmost
+            t=stack[--depth]; // visit
+            result.add(ids.get(t)); // emit
+            t=right[t]; // next subtree
         }
         return result; // return result
     }
+    private int compare(int a,int b){ // negative when a ranks first
+        if(scores[a]!=scores[b])return scores[a]>scores[b]?-1:1; // score descending
+        return ids.compare(a,b); // tie-break lex ascending
+    }
+    private void sortRun(int n){ // bottom-up merge sort of shifted[0,n) by compare, merged is scratch
+        int[] from=shifted,to=merged; // ping-pong buffers
+        for(int width=1;width<n;width<<=1){ // run width
+            for(int lo=0;lo<n;lo+=width<<1){ // merge pairs of runs
+                int mid=Math.min(lo+width,n),hi=Math.min(lo+(width<<1),n),a=lo,b=mid,m=lo; // bounds
+                while(a<mid&&b<hi)to[m++]=compare(from[b],from[a])<0?from[b++]:from[a++]; // stable
+                while(a<mid)to[m++]=from[a++];while(b<hi)to[m++]=from[b++]; // tails
+            }
+            int[] swap=from;from=to;to=swap; // next pass reads the output
+        }
+        if(from!=shifted)System.arraycopy(from,0,shifted,0,n); // result back in shifted
+    }
+    private int size(int t){return t==NIL?0:sizes[t];} // subtree size
+    private void pull(int t){sizes[t]=1+size(left[t])+size(right[t]);} // fix size
+    private int insert(int t,int u){ // O(log N) expected
+        if(t==NIL)return u; // place
+        if(priorities[u]>priorities[t]){split(t,u);pull(u);return u;} // u becomes subtree root
+        if(compare(u,t)<0)left[t]=insert(left[t],u);else right[t]=insert(right[t],u); // descend
+        pull(t); // fix size
+        return t; // subtree root
+    }
+    private void split(int t,int u){ // splits t around u's key into u's children
+        if(t==NIL){left[u]=right[u]=NIL;return;} // nothing left
+        if(compare(t,u)<0){split(right[t],u);right[t]=left[u];pull(t);left[u]=t;} // t ranks before u
+        else{split(left[t],u);left[t]=right[u];pull(t);right[u]=t;} // t ranks after u
+    }
+    private int remove(int t,int u){ // O(log N) expected, u must still hold the key it was inserted with
+        if(t==u)return merge(left[u],right[u]); // unlink
+        if(compare(u,t)<0)left[t]=remove(left[t],u);else right[t]=remove(right[t],u); // descend
+        pull(t); // fix size
+        return t; // subtree root
+    }
+    private int merge(int a,int b){ // every key of a ranks before b
+        if(a==NIL)return b;if(b==NIL)return a; // one side empty
+        if(priorities[a]>priorities[b]){right[a]=merge(right[a],b);pull(a);return a;} // a on top
+        left[b]=merge(a,left[b]);pull(b);return b; // b on top
+    }
+    private void inorder(){ // O(N) iterative walk into order
+        if(stack.length<scores.length)stack=new int[scores.length]; // path stack
+        int depth=0,t=root,n=0; // walk state
+        while(t!=NIL||depth>0){ // in order
+            while(t!=NIL){stack[depth++]=t;t=left[t];} // leftmost
+            t=stack[--depth];order[n++]=t;t=right[t]; // visit then right
+        }
+    }
+    private int build(int[] sorted,int n){ // O(N) Cartesian tree over sorted users with their own priorities
+        int depth=0; // right spine length
+        for(int i=0;i<n;i++){ // append in order
+            int u=sorted[i],last=NIL; // new node, last popped
+            left[u]=right[u]=NIL; // detach
+            while(depth>0&&priorities[stack[depth-1]]<priorities[u])last=stack[--depth]; // pop lower priorities
+            left[u]=last; // popped chain hangs left
+            if(depth>0)right[stack[depth-1]]=u; // hang under spine
+            stack[depth++]=u; // extend spine
+        }
+        int top=depth>0?stack[0]:NIL; // root is the bottom of the spine
+        fixSizes(top); // sizes bottom-up
+        return top; // root
+    }
+    private int fixSizes(int t){ // O(N) post-order, depth is the treap height
+        if(t==NIL)return 0; // empty
+        sizes[t]=1+fixSizes(left[t])+fixSizes(right[t]); // children first
+        return sizes[t]; // subtree size
+    }
+    private void grow(){ // double every column
+        int n=scores.length*2; // new capacity
+        scores=Arrays.copyOf(scores,n);left=Arrays.copyOf(left,n);right=Arrays.copyOf(right,n); // columns
+        sizes=Arrays.copyOf(sizes,n);priorities=Arrays.copyOf(priorities,n);stamp=Arrays.copyOf(stamp,n); // columns
+    }
+}
+
+class FanOutTask extends RecursiveAction{ // marks and bumps a slice of users, splitting large slices across the fork-join pool
+    private static final long serialVersionUID=1L; // ForkJoinTask is Serializable, tasks are never serialized
+    static final int LEAF_USERS=1<<14; // users updated by one task without splitting
+    private final int[] users,deltas,stamp,scores; // user slice source, per-user deltas or null, columns
+    private final int epoch,delta,lo,hi; // mark, shared score change and slice
+    FanOutTask(int[] users,int[] deltas,int[] stamp,int[] scores,int epoch,int delta,int lo,int hi){this.users=users;this.deltas=deltas;this.stamp=stamp;this.scores=scores;this.epoch=epoch;this.delta=delta;this.lo=lo;this.hi=hi;} // assign
+    protected void compute(){
+        if(hi-lo>LEAF_USERS){ // too big for one task
+            int mid=(lo+hi)>>>1; // split users
+            invokeAll(new FanOutTask(users,deltas,stamp,scores,epoch,delta,lo,mid),new FanOutTask(users,deltas,stamp,scores,epoch,delta,mid,hi)); // fork halves
+            return; // done
+        }
+        for(int i=lo;i<hi;i++){int u=users[i];stamp[u]=epoch;scores[u]+=deltas==null?delta:deltas[i];} // leaf
+    }
+}
+
+class Leaderboard{
+    private final IdTable playerIndex; // playerId to index
+    private int[] playerScores; // cumulative score per player index
+    private final TeamIndex playerUsers; // reverse mapping player -> user indexes
+    private final RankTree ranking; // sorted leaderboard over user indexes, owns the userId table
+    private int[] batchStamp=new int[16],batchDeltas=new int[16],affected=new int[16],affectedDeltas=new int[16]; // addScores scratch per user
+    private int batchEpoch; // current addScores mark
+    public Leaderboard(){this(false);} // default mode
+    public Leaderboard(boolean compact){ // compact: ids in char arenas and a CSR reverse index, for tens of millions of users
+        this.playerIndex=compact?new ArenaIdTable():new StringIdTable(); // initialize player index
+        this.playerScores=new int[16]; // initialize player scores
+        this.playerUsers=compact?new CsrTeamIndex():new RowTeamIndex(); // initialize reverse map
+        this.ranking=new RankTree(compact?new ArenaIdTable():new StringIdTable()); // initialize ranking and user index
+    }
+    private int player(String playerId){ // O(1) intern
+        int p=playerIndex.find(playerId); // existing index
+        if(p>=0)return p; // known player
+        int index=playerIndex.add(playerId); // next index
+        if(index==playerScores.length)playerScores=Arrays.copyOf(playerScores,index*2); // double
+        return index; // new index
+    }
+    public synchronized void addUser(String userId,List<String> playerIds){ // O(P + log N)
+        if(ranking.find(userId)>=0)return; // ignore duplicate user
+        Set<String> team=new HashSet<>(playerIds); // create team set
+        int[] players=new int[team.size()]; // team as indexes
+        int totalScore=0,n=0; // initialize team score
+        for(String playerId:team){int p=player(playerId);players[n++]=p;totalScore+=playerScores[p];} // accumulate
+        int u=ranking.add(userId,totalScore); // insert into leaderboard, interning userId
+        for(int p:players)playerUsers.add(p,u); // map each player to this user
+    }
+    public synchronized void addScore(String playerId,int delta){ // O(U log N) for small fan-outs, O(N) bulk merge for large ones
+        int p=player(playerId); // player index
+        playerScores[p]+=delta; // update player score
+        int[] owners=playerUsers.row(p); // owners of the player
+        ranking.shiftAll(owners,playerUsers.rowStart,playerUsers.rowEnd,delta); // every owner shifts by the same delta
+    }
+    public synchronized void addScores(String[] playerIds,int[] deltas,int n){ // one lock hold per batch, each affected user reordered once
+        if(n==1){addScore(playerIds[0],deltas[0]);return;} // shared delta, no sort needed
+        int users=ranking.size(); // scratch size
+        if(batchStamp.length<users){batchStamp=Arrays.copyOf(batchStamp,users);batchDeltas=new int[users];affected=new int[users];affectedDeltas=new int[users];} // grow scratch
+        batchEpoch++; // new mark
+        int m=0; // affected users
+        for(int i=0;i<n;i++){ // each player of the batch
+            int p=player(playerIds[i]),delta=deltas[i]; // player index
+            playerScores[p]+=delta; // update player score
+            int[] owners=playerUsers.row(p); // owners of the player
+            for(int j=playerUsers.rowStart;j<playerUsers.rowEnd;j++){ // owners
+                int u=owners[j]; // owner
+                if(batchStamp[u]!=batchEpoch){batchStamp[u]=batchEpoch;batchDeltas[u]=0;affected[m++]=u;} // first touch this batch
+                batchDeltas[u]+=delta; // net change
+            }
+        }
+        for(int j=0;j<m;j++)affectedDeltas[j]=batchDeltas[affected[j]]; // parallel to affected
+        ranking.shiftEach(affected,affectedDeltas,m); // one reorder per user
+    }
+    public synchronized List<String> getTopK(int k){ // O(K + log N)
+        return ranking.slice(0,k); // best k
+    }
+    public synchronized int getRank(String userId){ // O(log N), 1-based, -1 if unknown
+        int u=ranking.find(userId); // user index
+        return u<0?-1:ranking.rankOf(u)+1; // rank
+    }
+    public synchronized List<String> getUsersAround(String userId,int k){ // O(K + log N), up to k users either side plus the user
+        int u=ranking.find(userId); // user index
+        if(u<0)return new ArrayList<>(); // unknown user
+        int rank=ranking.rankOf(u),from=Math.max(0,rank-k); // window start
+        return ranking.slice(from,(int)Math.min(Integer.MAX_VALUE,(long)rank-from+k+1)); // window, k may be huge
+    }
+    public synchronized int countInScoreRange(int minScore,int maxScore){ // O(log N), inclusive bounds
+        if(minScore>maxScore)return 0; // empty range
+        return ranking.countAtLeast(minScore)-ranking.countAtLeast((long)maxScore+1); // difference of tails
+    }
+}
+final class ScoreEvent{ // node of the ingestion queue
+    final String playerId; // scoring player, null for a flush marker
+    final int delta; // score change
+    final Thread flusher; // thread waiting for this marker, null for events
+    volatile ScoreEvent next; // link set by the producer after swapping the tail
+    ScoreEvent(String playerId,int delta,Thread flusher){this.playerId=playerId;this.delta=delta;this.flusher=flusher;} // constructor
+}
+
+final class ScoreEventQueue{ // lock-free multi-producer single-consumer linked queue
+    private static final AtomicReferenceFieldUpdater<ScoreEventQueue,ScoreEvent> TAIL=AtomicReferenceFieldUpdater.newUpdater(ScoreEventQueue.class,ScoreEvent.class,"tail"); // producer swap
+    private volatile ScoreEvent tail; // last node, swapped by producers
+    private ScoreEvent head; // consumed stub, consumer only
+    ScoreEventQueue(){head=tail=new ScoreEvent(null,0,null);} // empty queue holds a stub
+    void offer(ScoreEvent event){TAIL.getAndSet(this,event).next=event;} // wait-free, one swap and one link
+    ScoreEvent poll(){ScoreEvent next=head.next;if(next==null)return null;head=next;return next;} // consumer only, null also while a producer is mid-link
+    boolean isEmpty(){return head==tail;} // consumer view, false while a producer is mid-link
+}
+
+final class LeaderboardSnapshot{ // immutable top users published after each batch
+    static final LeaderboardSnapshot EMPTY=new LeaderboardSnapshot(0,Collections.emptyList()); // before the first batch
+    private final long version; // batches applied
+    private final List<String> topUsers; // best first, unmodifiable
+    LeaderboardSnapshot(long version,List<String> topUsers){this.version=version;this.topUsers=topUsers;} // constructor
+    public long getVersion(){return version;} // return version
+    public List<String> getTopUsers(){return topUsers;} // return ranked ids
+}
+
+class LeaderboardIngestor implements AutoCloseable{ // score events from many threads, coalesced per player and applied in batches by one writer
+    static final int MAX_BATCH_EVENTS=1<<16; // events folded into one batch at most
+    private final Leaderboard leaderboard; // target, also serves rank queries
+    private final long maxBatchNanos; // longest an event waits for its batch to close
+    private final int snapshotSize; // users kept in each snapshot
+    private final ScoreEventQueue queue=new ScoreEventQueue(); // pending events
+    private final Thread writer; // single consumer
+    private volatile boolean idle; // writer parked on an empty queue
+    private volatile boolean closed; // no more events accepted
+    private final AtomicInteger submitting=new AtomicInteger(); // submits between their closed check and their offer, the writer outlives them
+    private volatile LeaderboardSnapshot snapshot=LeaderboardSnapshot.EMPTY; // last published top users
+    private final Set<Thread> flushed=ConcurrentHashMap.newKeySet(); // flushers whose marker was applied
+    private final Map<String,int[]> pending=new LinkedHashMap<>(); // coalesced delta per player, writer only
+    private String[] batchPlayers=new String[16];private int[] batchDeltas=new int[16]; // batch arrays, writer only
+    public LeaderboardIngestor(Leaderboard leaderboard,long maxBatchMillis,int snapshotSize){
+        this.leaderboard=leaderboard; // assign leaderboard
+        this.maxBatchNanos=maxBatchMillis*1_000_000L; // assign latency
+        this.snapshotSize=snapshotSize; // assign snapshot size
+        publish(); // users added before the ingestor
+        this.writer=new Thread(this::drainLoop,"leaderboard-writer"); // consumer
+        writer.setDaemon(true); // never blocks shutdown
+        writer.start(); // run
+    }
+    public void submit(String playerId,int delta){ // lock-free, applied within the batch window
+        submitting.incrementAndGet(); // close cannot finish draining before our offer
+        try{
+            if(closed)throw new IllegalStateException("Ingestor is closed"); // misuse
+            queue.offer(new ScoreEvent(playerId,delta,null)); // enqueue
+            if(idle)LockSupport.unpark(writer); // wake an idle writer
+        }finally{submitting.decrementAndGet();} // leave the gate
+    }
+    public void flush(){ // blocks until every event submitted before the call is applied and published
+        if(Thread.currentThread()==writer)return; // never wait on ourselves
+        queue.offer(new ScoreEvent(null,0,Thread.currentThread())); // marker
+        LockSupport.unpark(writer); // end any batch window now
+        while(!flushed.remove(Thread.currentThread())){ // wait for the writer to reach the marker
+            if(!writer.isAlive())return; // writer gone
+            LockSupport.parkNanos(this,1_000_000L); // recheck even if the writer exits without waking us
+        }
+    }
+    public LeaderboardSnapshot snapshot(){return snapshot;} // volatile read, no lock
+    public List<String> getTopK(int k){ // O(1) from the snapshot, falls back to the leaderboard beyond what it holds
+        List<String> top=snapshot.getTopUsers(); // published users
+        if(k<=top.size())return top.subList(0,Math.max(0,k)); // prefix
+        return leaderboard.getTopK(k); // deeper than the snapshot, or users added since it was published, read under the lock
+    }
+    @Override public void close(){ // applies what is queued, then stops the writer
+        closed=true; // refuse new events
+        LockSupport.unpark(writer); // wake writer
+        try{writer.join();}catch(InterruptedException e){Thread.currentThread().interrupt();} // wait for the last batch
+    }
+    private void drainLoop(){ // single writer
+        List<Thread> flushers=new ArrayList<>(); // markers reached in this batch
+        while(true){ // until closed and drained
+            ScoreEvent event=queue.poll(); // first event of a batch
+            if(event==null){ // nothing queued
+                if(closed&&submitting.get()==0&&queue.isEmpty())return; // done, a submit that saw closed==false has offered by now
+                idle=true; // producers unpark us from now on
+                if(queue.isEmpty()&&!closed)LockSupport.park(this); // wait for work
+                idle=false; // busy
+                continue; // retry
+            }
+            if(event.flusher==null&&maxBatchNanos>0)LockSupport.parkNanos(this,maxBatchNanos); // let the window fill, a flush or close ends it early
+            int events=0; // events in batch
+            for(;event!=null;event=events<MAX_BATCH_EVENTS?queue.poll():null){ // drain what arrived
+                if(event.flusher!=null){flushers.add(event.flusher);break;} // flush ends the batch
+                pending.computeIfAbsent(event.playerId,k->new int[1])[0]+=event.delta; // coalesce per player
+                events++; // count
+            }
+            apply(); // one leaderboard update
+            publish(); // new snapshot
+            for(Thread flusher:flushers){flushed.add(flusher);LockSupport.unpark(flusher);} // release flushers
+            flushers.clear(); // reuse
+        }
+    }
+    private void apply(){ // writer only
+        if(pending.isEmpty())return; // nothing coalesced
+        int n=0; // distinct players
+        if(batchPlayers.length<pending.size()){batchPlayers=new String[pending.size()*2];batchDeltas=new int[pending.size()*2];} // grow
+        for(Map.Entry<String,int[]> entry:pending.entrySet()){batchPlayers[n]=entry.getKey();batchDeltas[n++]=entry.getValue()[0];} // flatten
+        pending.clear(); // next window
+        leaderboard.addScores(batchPlayers,batchDeltas,n); // each owner reordered once
+    }
+    private void publish(){snapshot=new LeaderboardSnapshot(snapshot.getVersion()+1,Collections.unmodifiableList(leaderboard.getTopK(snapshotSize)));} // O(K) under the leaderboard lock
+}
+
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
+    }
+}
+class LeaderboardBench{ // java Leaderboard.java bench [users] [players] [teamSize] [ops] [footprintUsers]
+    static void run(String[] args){
+        int userCount=Bench.param(args,1,100_000); // users
+        int playerCount=Bench.param(args,2,500); // players
+        int teamSize=Bench.param(args,3,11); // players per user
+        int ops=Bench.param(args,4,20_000); // ops per pass
+        int footprintUsers=Bench.param(args,5,1_000_000); // users for the heap comparison
+        String[] playerIds=new String[playerCount]; // player ids
+        for(int p=0;p<playerCount;p++)playerIds[p]="P"+p; // name players
+        List<List<String>> teams=new ArrayList<>(); // pre-built teams
+        Random random=new Random(42); // fixed seed
+        for(int u=0;u<userCount;u++){ // pick teams
+            List<String> team=new ArrayList<>(); // team of user
+            for(int k=0;k<teamSize;k++)team.add(playerIds[random.nextInt(playerCount)]); // random players
+            teams.add(team); // store team
+        }
+        Supplier<Leaderboard> league=()->{ // leaderboard with every user registered
+            Leaderboard leaderboard=new Leaderboard(); // fresh leaderboard
+            for(int u=0;u<userCount;u++)leaderboard.addUser("U"+u,teams.get(u)); // add users
+            return leaderboard; // return leaderboard
+        };
+        Bench.measure("Leaderboard addScore",ops,()->{
+            Leaderboard leaderboard=league.get(); // fresh leaderboard
+            return i->leaderboard.addScore(playerIds[i%playerCount],1+(i&3)); // player event
+        });
+        Bench.measure("Leaderboard compact addScore",ops,()->{
+            Leaderboard leaderboard=new Leaderboard(true); // compact mode
+            for(int u=0;u<userCount;u++)leaderboard.addUser("U"+u,teams.get(u)); // add users
+            return i->leaderboard.addScore(playerIds[i%playerCount],1+(i&3)); // player event
+        });
+        Bench.measure("Leaderboard addScore star player",ops/20,()->{
+            Leaderboard leaderboard=new Leaderboard(); // star sits on every second team
+            for(int u=0;u<userCount;u++){List<String> team=new ArrayList<>(teams.get(u));if((u&1)==0)team.add("STAR");leaderboard.addUser("U"+u,team);} // add users
+            return i->leaderboard.addScore("STAR",1+(i&3)); // goal by the star
+        });
+        Bench.measure("Leaderboard getTopK(10)",ops,()->{
+            Leaderboard leaderboard=league.get(); // fresh leaderboard
+            for(int p=0;p<playerCount;p++)leaderboard.addScore(playerIds[p],random.nextInt(100)); // spread scores
+            return i->leaderboard.getTopK(10); // top ten read
+        });
+        List<LeaderboardIngestor> ingestors=new ArrayList<>(); // closed after measuring
+        Bench.measure("LeaderboardIngestor submit",ops,()->{
+            LeaderboardIngestor ingestor=new LeaderboardIngestor(league.get(),5,100); // 5ms batch window
+            ingestors.add(ingestor); // close later
+            return i->ingestor.submit(playerIds[i%playerCount],1+(i&3)); // enqueue only
+        });
+        for(LeaderboardIngestor ingestor:ingestors)ingestor.close(); // stop writers
+        closeRace(200); // accepted events survive a concurrent close
+        lateUsers(); // users added after the last batch are still ranked
+        burst(league.get(),league.get(),playerIds,ops/4); // applied events per second
+        Bench.measure("Leaderboard getRank",ops,()->{
+            Leaderboard leaderboard=league.get(); // fresh leaderboard
+            for(int p=0;p<playerCount;p++)leaderboard.addScore(playerIds[p],random.nextInt(100)); // spread scores
+            return i->leaderboard.getRank("U"+(int)((i*2654435761L)%userCount)); // what is my rank
+        });
+        Bench.measure("Leaderboard getUsersAround(5)",ops,()->{
+            Leaderboard leaderboard=league.get(); // fresh leaderboard
+            for(int p=0;p<playerCount;p++)leaderboard.addScore(playerIds[p],random.nextInt(100)); // spread scores
+            return i->leaderboard.getUsersAround("U"+(int)((i*2654435761L)%userCount),5); // neighbours
+        });
+        Bench.measure("Leaderboard countInScoreRange",ops,()->{
+            Leaderboard leaderboard=league.get(); // fresh leaderboard
+            for(int p=0;p<playerCount;p++)leaderboard.addScore(playerIds[p],random.nextInt(100)); // spread scores
+            return i->leaderboard.countInScoreRange(i%500,i%500+100); // score band
+        });
+        footprint(false,footprintUsers,playerIds,teamSize); // default mode heap
+        footprint(true,footprintUsers,playerIds,teamSize); // compact mode heap
+    }
+    static void footprint(boolean compact,int users,String[] playerIds,int teamSize){ // retained heap of a populated leaderboard, teams generated on the fly so only the leaderboard stays live
+        long before=usedHeap(); // baseline
+        Leaderboard leaderboard=new Leaderboard(compact); // mode under test
+        Random random=new Random(42); // fixed seed
+        List<String> team=new ArrayList<>(); // reused team
+        for(int u=0;u<users;u++){ // register users
+            team.clear(); // next team
+            for(int k=0;k<teamSize;k++)team.add(playerIds[random.nextInt(playerIds.length)]); // random players
+            leaderboard.addUser("U"+u,team); // add user
+        }
+        long bytes=usedHeap()-before; // retained by the leaderboard
+        System.out.printf("%-32s users=%,d heap=%,.1fMB bytes/user=%,.1f top=%s%n",compact?"Leaderboard heap compact":"Leaderboard heap default",users,bytes/1048576.0,(double)bytes/users,leaderboard.getTopK(1)); // report, leaderboard live until here
+    }
+    static long usedHeap(){ // heap in use after a full collection
+        for(int i=0;i<3;i++)System.gc(); // settle
+        return java.lang.management.ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(); // used bytes
+    }
+    static void lateUsers(){ // a short snapshot is not the whole leaderboard
+        Leaderboard leaderboard=new Leaderboard(); // empty when the ingestor starts
+        try(LeaderboardIngestor ingestor=new LeaderboardIngestor(leaderboard,0,100)){ // publishes an empty snapshot
+            leaderboard.addUser("U1",Collections.singletonList("P")); // no score batch follows
+            leaderboard.addUser("U2",Collections.singletonList("P")); // no score batch follows
+            if(!ingestor.getTopK(5).equals(leaderboard.getTopK(5)))throw new IllegalStateException("Users added after the snapshot are missing"); // fail loudly
+        }
+    }
+    static void closeRace(int rounds){ // producers submit while close runs, every submit that returns normally must be applied
+        int producers=Math.max(2,Runtime.getRuntime().availableProcessors()); // up to core count
+        for(int round=0;round<rounds;round++){ // the window is narrow, try often
+            Leaderboard leaderboard=new Leaderboard(); // one user scores every event
+            leaderboard.addUser("U",Collections.singletonList("P")); // single owner
+            LeaderboardIngestor ingestor=new LeaderboardIngestor(leaderboard,0,1); // no batch window
+            AtomicInteger accepted=new AtomicInteger(); // submits that did not throw
+            CountDownLatch start=new CountDownLatch(1); // line producers up with close
+            List<Thread> threads=new ArrayList<>(); // producer threads
+            for(int t=0;t<producers;t++){ // start producers
+                Thread thread=new Thread(()->{
+                    try{start.await();}catch(InterruptedException e){return;} // wait for the gun
+                    try{while(true){ingestor.submit("P",1);accepted.incrementAndGet();}}catch(IllegalStateException closed){} // until refused
+                });
+                threads.add(thread); // keep handle
+                thread.start(); // launch
+            }
+            start.countDown(); // go
+            Thread.yield(); // let some events in
+            ingestor.close(); // races the producers
+            for(Thread thread:threads){try{thread.join();}catch(InterruptedException e){Thread.currentThread().interrupt();return;}} // wait for producers
+            if(leaderboard.countInScoreRange(accepted.get(),accepted.get())!=1)throw new IllegalStateException("Accepted event lost on close"); // fail loudly
+        }
+        System.out.printf("%-32s rounds=%d lost=0%n","LeaderboardIngestor close race",rounds); // report
+    }
+    static void burst(Leaderboard direct,Leaderboard batched,String[] playerIds,int events){ // match burst: every event applied, one call each versus coalesced batches
+        Random random=new Random(3); // fixed seed
+        int[] players=new int[events],deltas=new int[events]; // event log
+        for(int i=0;i<events;i++){players[i]=random.nextInt(Math.min(22,playerIds.length));deltas[i]=1+random.nextInt(4);} // two squads on the pitch
+        long start=System.nanoTime(); // direct start
+        for(int i=0;i<events;i++)direct.addScore(playerIds[players[i]],deltas[i]); // one reorder per owner per event
+        long directNanos=System.nanoTime()-start; // direct time
+        try(LeaderboardIngestor ingestor=new LeaderboardIngestor(batched,1,100)){ // 1ms window
+            start=System.nanoTime(); // batched start
+            for(int i=0;i<events;i++)ingestor.submit(playerIds[players[i]],deltas[i]); // enqueue
+            ingestor.flush(); // wait until applied
+            long batchedNanos=System.nanoTime()-start; // batched time
+            if(!ingestor.getTopK(100).equals(direct.getTopK(100)))throw new IllegalStateException("Batched ranking differs from direct"); // fail loudly
+            System.out.printf("%-32s events=%,d direct=%,.0f/s batched=%,.0f/s%n","Leaderboard burst",events,events*1e9/directNanos,events*1e9/batchedNanos); // report
+        }
+    }
 }
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){LeaderboardBench.run(args);return;} // java Leaderboard.java bench
         Leaderboard lb=new Leaderboard(); // create leaderboard
         lb.addUser("Alice",Arrays.asList("P1","P2")); // add user Alice
         lb.addUser("Bob",Arrays.asList("P2","P3")); // add user Bob
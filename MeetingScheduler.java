@@ -1,48 +1,497 @@
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // import concurrent maps
+import java.util.function.*; // import functional interfaces
+
+enum RoomFeature{VIDEO,WHITEBOARD,PHONE,ACCESSIBLE; // room equipment
+    static int mask(Collection<RoomFeature> features){int mask=0;for(RoomFeature feature:features)mask|=1<<feature.ordinal();return mask;} // feature bits
+}
+class Room{ // bookable room and its attributes
+    final String roomId; // room identifier
+    final String building; // building identifier
+    final int capacity; // seats
+    final Set<RoomFeature> features; // equipment
+    public Room(String roomId,String building,int capacity,Set<RoomFeature> features){
+        if(capacity<1)throw new IllegalArgumentException("Capacity must be positive: "+roomId); // reject empty rooms
+        this.roomId=roomId;this.building=building;this.capacity=capacity;this.features=features; // assign
+    }
+}
 
 class ActiveMeeting{
     String meetingId; // meeting identifier
     String roomId; // assigned room
+    int room; // assigned room rank in id order
     int start; // start time
     int end; // end time
-    public ActiveMeeting(String meetingId,String roomId,int start,int end)
-    {this.meetingId=meetingId;this.roomId=roomId;this.start=start;this.end=end;} // constructor
+    int heapIndex=-1; // slot in the end-time heap, -1 when not queued
+    public ActiveMeeting(String meetingId,String roomId,int room,int start,int end)
+    {this.meetingId=meetingId;this.roomId=roomId;this.room=room;this.start=start;this.end=end;} // constructor
+}
+class RoomCalendar{ // bookings of one room keyed by start, never overlapping, plus the idle gaps between them
+    final String roomId; // room identifier
+    final int capacity,features; // seats and RoomFeature bits, zero when rooms carry no attributes
+    private final TreeMap<Integer,ActiveMeeting> bookings=new TreeMap<>(); // start -> meeting
+    private final TreeMap<Long,Integer> gaps=new TreeMap<>(); // inner gap length -> occurrences
+    RoomCalendar(String roomId){this(roomId,0,0);} // room without attributes
+    RoomCalendar(String roomId,int capacity,int features){this.roomId=roomId;this.capacity=capacity;this.features=features;} // constructor
+    boolean isFree(int start,int end){ // O(log M), no booking overlaps [start, end)
+        Map.Entry<Integer,ActiveMeeting> before=bookings.lowerEntry(end); // latest booking starting before end
+        return before==null||before.getValue().end<=start; // it must finish by start
+    }
+    void add(ActiveMeeting meeting){ // O(log M), the slot must be free
+        Map.Entry<Integer,ActiveMeeting> last=bookings.lastEntry(); // latest booking
+        if(last==null||last.getKey()<meeting.start){ // appending in time order, one neighbour only
+            if(last!=null)addGap((long)meeting.start-last.getValue().end); // gap behind
+            bookings.put(meeting.start,meeting);return; // store booking
+        }
+        Map.Entry<Integer,ActiveMeeting> before=bookings.lowerEntry(meeting.start),after=bookings.higherEntry(meeting.start); // neighbours
+        if(before!=null&&after!=null)removeGap((long)after.getKey()-before.getValue().end); // gap split in two
+        if(before!=null)addGap((long)meeting.start-before.getValue().end); // gap behind
+        if(after!=null)addGap((long)after.getKey()-meeting.end); // gap ahead
+        bookings.put(meeting.start,meeting); // store booking
+    }
+    void remove(ActiveMeeting meeting){ // O(log M), no-op unless this very meeting holds its start
+        if(!bookings.remove(meeting.start,meeting))return; // drop booking, never a newer one at the same start
+        Map.Entry<Integer,ActiveMeeting> before=bookings.lowerEntry(meeting.start),after=bookings.higherEntry(meeting.start); // neighbours
+        if(before!=null)removeGap((long)meeting.start-before.getValue().end); // gap behind
+        if(after!=null)removeGap((long)after.getKey()-meeting.end); // gap ahead
+        if(before!=null&&after!=null)addGap((long)after.getKey()-before.getValue().end); // gaps joined
+    }
+    int firstStart(){return bookings.isEmpty()?Integer.MAX_VALUE:bookings.firstKey();} // free before this
+    int lastEnd(){return bookings.isEmpty()?Integer.MIN_VALUE:bookings.lastEntry().getValue().end;} // free from this
+    long maxGap(){return gaps.isEmpty()?0:gaps.lastKey();} // longest idle stretch between bookings
+    private void addGap(long gap){if(gap>0)gaps.merge(gap,1,Integer::sum);} // count gap
+    private void removeGap(long gap){if(gap>0)gaps.compute(gap,(g,n)->n==1?null:n-1);} // uncount gap
+}
+class MeetingHeap{ // binary min heap by end time where each meeting knows its slot, so removal is O(log M)
+    private ActiveMeeting[] heap=new ActiveMeeting[16]; // heap array
+    private int size; // meetings queued
+    boolean isEmpty(){return size==0;} // nothing queued
+    ActiveMeeting peek(){return heap[0];} // earliest end, null if empty
+    void offer(ActiveMeeting meeting){ // O(log M)
+        if(size==heap.length)heap=Arrays.copyOf(heap,size*2); // grow
+        place(meeting,size++);siftUp(meeting.heapIndex); // append then restore order
+    }
+    void offerAll(ActiveMeeting[] meetings,int n){ // O(M + n) bottom-up heapify
+        if(size+n>heap.length)heap=Arrays.copyOf(heap,Math.max(heap.length*2,size+n)); // grow once
+        for(int i=0;i<n;i++)place(meetings[i],size++); // append
+        for(int i=(size>>1)-1;i>=0;i--)siftDown(i); // restore order
+    }
+    ActiveMeeting poll(){ // O(log M)
+        ActiveMeeting first=heap[0]; // earliest end
+        if(first!=null)remove(first); // unlink
+        return first; // removed meeting
+    }
+    boolean remove(ActiveMeeting meeting){ // O(log M), false if not queued here
+        int i=meeting.heapIndex; // slot
+        if(i<0||i>=size||heap[i]!=meeting)return false; // not queued
+        ActiveMeeting last=heap[--size];heap[size]=null;meeting.heapIndex=-1; // detach last slot
+        if(i<size){place(last,i);siftDown(i);siftUp(last.heapIndex);} // refill the hole
+        if(heap.length>16&&size<heap.length>>2)heap=Arrays.copyOf(heap,heap.length>>1); // compact after cancellation storms
+        return true; // removed
+    }
+    private void siftUp(int i){ // O(log M)
+        ActiveMeeting meeting=heap[i]; // moving meeting
+        while(i>0){int parent=(i-1)>>1;if(heap[parent].end<=meeting.end)break;place(heap[parent],i);i=parent;} // pull parents down
+        place(meeting,i); // settle
+    }
+    private void siftDown(int i){ // O(log M)
+        ActiveMeeting meeting=heap[i]; // moving meeting
+        while(true){ // push down
+            int child=2*i+1; // left child
+            if(child>=size)break; // leaf
+            if(child+1<size&&heap[child+1].end<heap[child].end)child++; // earlier child
+            if(heap[child].end>=meeting.end)break; // in order
+            place(heap[child],i);i=child; // lift child
+        }
+        place(meeting,i); // settle
+    }
+    private void place(ActiveMeeting meeting,int i){heap[i]=meeting;meeting.heapIndex=i;} // store with back-pointer
 }
-class MeetingRoomSystem{
-    private TreeSet<String> availableRooms; // sorted available rooms
-    private PriorityQueue<ActiveMeeting> minHeap; // min heap ordered by end time
+class RoomAvailability{ // segment tree over rooms in calendar order, each node bounds when its rooms can be free and what they offer
+    private final RoomCalendar[] calendars; // rooms by rank
+    private final int size; // leaves, power of two
+    private final int[] lastEnds,firstStarts,features; // min last end, max first start and feature union per node
+    private final long[] gaps; // max inner gap per node
+    RoomAvailability(RoomCalendar[] calendars){
+        int n=1;while(n<calendars.length)n<<=1; // round up
+        this.calendars=calendars;size=n;lastEnds=new int[2*n];firstStarts=new int[2*n];features=new int[2*n];gaps=new long[2*n]; // nodes
+        Arrays.fill(lastEnds,Integer.MAX_VALUE);Arrays.fill(firstStarts,Integer.MIN_VALUE); // padding leaves are never free
+        for(int r=0;r<calendars.length;r++){lastEnds[size+r]=Integer.MIN_VALUE;firstStarts[size+r]=Integer.MAX_VALUE;features[size+r]=calendars[r].features;} // real rooms start empty
+        for(int i=size-1;i>0;i--)pull(i); // internal nodes
+    }
+    void update(int room){ // O(log R), after the room's calendar changed
+        int i=size+room;RoomCalendar calendar=calendars[room]; // leaf
+        lastEnds[i]=calendar.lastEnd();firstStarts[i]=calendar.firstStart();gaps[i]=calendar.maxGap(); // leaf summary
+        for(i>>=1;i>0;i>>=1)pull(i); // ancestors
+    }
+    void updateAll(){ // O(R), after bulk calendar changes
+        for(int r=0;r<calendars.length;r++){RoomCalendar calendar=calendars[r];lastEnds[size+r]=calendar.lastEnd();firstStarts[size+r]=calendar.firstStart();gaps[size+r]=calendar.maxGap();} // leaves
+        for(int i=size-1;i>0;i--)pull(i); // internal nodes
+    }
+    int findFree(int start,int end){return findFree(0,start,end,0);} // smallest room free for [start, end), -1 if none
+    int findFree(int from,int start,int end,int required){ // first room ranked at or after from with the required features free for [start, end), -1 if none
+        return find(1,0,size,from,start,end,required); // leftmost descent from the root
+    }
+    private int find(int node,int lo,int hi,int from,int start,int end,int required){ // O(log R + log M) while the bounds prune, O(R log M) worst case since every room with a long enough gap at another time costs an isFree check
+        if(hi<=from||(features[node]&required)!=required)return -1; // out of range or nobody here has the features
+        if(lastEnds[node]>start&&firstStarts[node]<end&&gaps[node]<(long)end-start)return -1; // no room here can fit it
+        if(node>=size){RoomCalendar calendar=calendars[lo];return (calendar.features&required)==required&&calendar.isFree(start,end)?lo:-1;} // exact check at the leaf
+        int mid=(lo+hi)>>>1; // split
+        int room=find(2*node,lo,mid,from,start,end,required); // lower ranks first
+        return room>=0?room:find(2*node+1,mid,hi,from,start,end,required); // then higher ranks
+    }
+    private void pull(int i){ // combine children
+        lastEnds[i]=Math.min(lastEnds[2*i],lastEnds[2*i+1]);firstStarts[i]=Math.max(firstStarts[2*i],firstStarts[2*i+1]);gaps[i]=Math.max(gaps[2*i],gaps[2*i+1]); // bounds
+        features[i]=features[2*i]|features[2*i+1]; // union
+    }
+}
+class MeetingRoomSystem{ // calendar of bookings in any time order, ended meetings stay booked and keep their ids until releaseEndedBy forgets them
+    private final String[] roomIds; // room ids sorted
+    private final RoomCalendar[] calendars; // one calendar per room, in roomIds order
+    private final RoomAvailability availability; // smallest free room lookup
+    private final MeetingHeap minHeap; // addressable min heap ordered by end time
     private Map<String,ActiveMeeting> activeMeetings; // active meeting map
     public MeetingRoomSystem(List<String> roomIds){
-        this.availableRooms=new TreeSet<>(roomIds); // initialize available rooms sorted
-        this.minHeap=new PriorityQueue<>(Comparator.comparingInt(m->m.end)); // heap ordered by end time
+        this.roomIds=new TreeSet<>(roomIds).toArray(new String[0]); // distinct rooms sorted
+        this.calendars=new RoomCalendar[this.roomIds.length]; // initialize calendars
+        for(int r=0;r<calendars.length;r++)calendars[r]=new RoomCalendar(this.roomIds[r]); // in id order
+        this.availability=new RoomAvailability(calendars); // initialize availability index
+        this.minHeap=new MeetingHeap(); // heap ordered by end time
         this.activeMeetings=new HashMap<>(); // initialize meeting map
     }
-    public synchronized String bookMeeting(String meetingId,int start,int end){ // O(log R + log M)
+    public synchronized String bookMeeting(String meetingId,int start,int end){ // O(log R + log M) typical, O(R log M) worst case, requests may arrive in any time order and nothing is released here
         if(activeMeetings.containsKey(meetingId))return "MeetingId Already Exists"; // check duplicate id
         if(start>=end)return "Invalid Time Interval"; // validate interval
-        while(!minHeap.isEmpty()&&minHeap.peek().end<=start){ // free all finished meetings
+        int room=availability.findFree(start,end); // smallest room free for the whole interval
+        if(room<0)return "No Rooms Available"; // if no room free
+        RoomCalendar calendar=calendars[room]; // chosen room
+        ActiveMeeting meeting=new ActiveMeeting(meetingId,calendar.roomId,room,start,end); // create meeting object
+        calendar.add(meeting);availability.update(room); // book the slot
+        minHeap.offer(meeting); // add to heap
+        activeMeetings.put(meetingId,meeting); // store in active map
+        return calendar.roomId; // return assigned room
+    }
+    public synchronized String[] bookMeetings(String[] meetingIds,int[] starts,int[] ends){ // same answers as bookMeeting called in start order, ties in batch order, nothing changes unless the whole batch is well formed
+        int n=meetingIds.length; // batch size
+        if(starts.length!=n||ends.length!=n)throw new IllegalArgumentException("Unpaired meeting arrays"); // validation before any state changes
+        for(int i=0;i<n;i++)if(meetingIds[i]==null)throw new IllegalArgumentException("Null meetingId at "+i); // validation
+        long[] order=new long[n]; // start and batch position packed, one primitive sort
+        for(int i=0;i<n;i++)order[i]=(long)starts[i]<<32|i; // start high, position low
+        Arrays.sort(order); // start order, ties in batch order
+        String[] results=new String[n]; // answer per batch position
+        ActiveMeeting[] booked=new ActiveMeeting[n]; // accepted meetings in start order
+        int m=0; // accepted
+        Set<String> accepted=new HashSet<>((int)Math.min(1<<30,n*4L/3+1)); // batch ids booked so far, the system is untouched until commit
+        BitSet free=new BitSet(calendars.length);free.set(0,calendars.length); // rooms not held by a running batch meeting
+        MeetingHeap running=new MeetingHeap(); // batch meetings holding a room, by end
+        for(int k=0;k<n;k++){ // sweep in start order, plan only
+            int i=(int)order[k],start=starts[i],end=ends[i]; // next meeting
+            if(activeMeetings.containsKey(meetingIds[i])||accepted.contains(meetingIds[i])){results[i]="MeetingId Already Exists";continue;} // check duplicate id, earlier batch entries included
+            if(start>=end){results[i]="Invalid Time Interval";continue;} // validate interval
+            while(!running.isEmpty()&&running.peek().end<=start)free.set(running.poll().room); // rooms handed back by ended batch meetings
+            int room=free.nextSetBit(0); // smallest room the batch leaves free
+            while(room>=0&&!calendars[room].isFree(start,end))room=free.nextSetBit(room+1); // skip rooms taken by earlier bookings
+            if(room<0){results[i]="No Rooms Available";continue;} // if no room free
+            ActiveMeeting meeting=new ActiveMeeting(meetingIds[i],calendars[room].roomId,room,start,end); // create meeting object
+            free.clear(room);running.offer(meeting); // room held until it ends
+            accepted.add(meeting.meetingId); // later duplicates in the batch are refused
+            booked[m++]=meeting;results[i]=meeting.roomId; // accepted
+        }
+        if(m>activeMeetings.size()){Map<String,ActiveMeeting> sized=new HashMap<>((int)Math.min(1<<30,(activeMeetings.size()+(long)m)*4/3+1));sized.putAll(activeMeetings);activeMeetings=sized;} // one resize for the whole batch
+        for(int j=0;j<m;j++){activeMeetings.put(booked[j].meetingId,booked[j]);calendars[booked[j].room].add(booked[j]);} // commit, per room in start order, mostly appends
+        minHeap.offerAll(booked,m); // one heapify
+        availability.updateAll(); // one index rebuild
+        return results; // answers in batch order
+    }
+    public synchronized boolean isRoomFree(String roomId,int start,int end){ // O(log R + log M), one room looked up by id, no availability search
+        int room=Arrays.binarySearch(roomIds,roomId); // rank by id
+        return room>=0&&start<end&&calendars[room].isFree(start,end); // unknown rooms are never free
+    }
+    public synchronized int releaseEndedBy(int time){ // O(k log M), forgets meetings finished by time so their ids and slots can be reused
+        int released=0; // meetings dropped
+        while(!minHeap.isEmpty()&&minHeap.peek().end<=time){ // finished meetings
             ActiveMeeting finished=minHeap.poll(); // remove earliest finishing meeting
-            availableRooms.add(finished.roomId); // mark its room as available
+            release(finished); // free its slot
             activeMeetings.remove(finished.meetingId); // remove from active map
+            released++; // count
         }
-        if(availableRooms.isEmpty())return "No Rooms Available"; // if no room free
-        String roomId=availableRooms.pollFirst(); // get smallest available room
-        ActiveMeeting meeting=new ActiveMeeting(meetingId,roomId,start,end); // create meeting object
+        return released; // meetings dropped
+    }
+    public synchronized String cancelMeeting(String meetingId){ // O(log R + log M), status returned instead of printed under the lock
+        ActiveMeeting meeting=activeMeetings.remove(meetingId); // fetch and unmap meeting
+        if(meeting==null)return "Invalid MeetingId"; // handle invalid id
+        if(minHeap.remove(meeting))release(meeting); // indexed removal from heap, then mark slot available
+        return "Meeting Cancelled"; // confirmation
+    }
+    private void release(ActiveMeeting meeting){ // O(log R + log M)
+        RoomCalendar calendar=calendars[meeting.room]; // booked room
+        calendar.remove(meeting);availability.update(meeting.room); // free the slot
+    }
+}
+class RoomPartition{ // rooms of one building and capacity bucket behind their own monitor, ranked by capacity then id so the first fit is the best fit
+    private final RoomCalendar[] calendars; // rooms by rank
+    private final int[] capacities; // capacity by rank, ascending
+    private final RoomAvailability availability; // first free room lookup
+    private final MeetingHeap minHeap=new MeetingHeap(); // bookings by end time
+    RoomPartition(List<Room> rooms){
+        List<Room> sorted=new ArrayList<>(rooms); // ranked copy
+        sorted.sort(Comparator.comparingInt((Room r)->r.capacity).thenComparing(r->r.roomId)); // best fit first
+        calendars=new RoomCalendar[sorted.size()];capacities=new int[sorted.size()]; // columns
+        for(int r=0;r<calendars.length;r++){Room room=sorted.get(r);calendars[r]=new RoomCalendar(room.roomId,room.capacity,RoomFeature.mask(room.features));capacities[r]=room.capacity;} // by rank
+        availability=new RoomAvailability(calendars); // availability index
+    }
+    synchronized String book(String meetingId,int attendees,int required,int start,int end,ConcurrentMap<String,ActiveMeeting> meetings){ // room id, null if nothing here fits, id claimed under this lock
+        int from=0,to=capacities.length; // first rank seating everyone
+        while(from<to){int mid=(from+to)>>>1;if(capacities[mid]<attendees)from=mid+1;else to=mid;} // lower bound
+        int room=availability.findFree(from,start,end,required); // smallest fitting room free for the interval
+        if(room<0)return null; // try a larger bucket
+        RoomCalendar calendar=calendars[room]; // chosen room
+        ActiveMeeting meeting=new ActiveMeeting(meetingId,calendar.roomId,room,start,end); // create meeting object
+        if(meetings.putIfAbsent(meetingId,meeting)!=null)return "MeetingId Already Exists"; // lost a race for the id
+        calendar.add(meeting);availability.update(room); // book the slot
         minHeap.offer(meeting); // add to heap
-        activeMeetings.put(meetingId,meeting); // store in active map
-        return roomId; // return assigned room
+        return calendar.roomId; // assigned room
+    }
+    synchronized boolean cancel(ActiveMeeting meeting){ // O(log R + log M), false if releaseEndedBy already dropped it
+        if(!minHeap.remove(meeting))return false; // no longer booked here
+        calendars[meeting.room].remove(meeting);availability.update(meeting.room); // free the slot
+        return true; // cancelled
+    }
+    synchronized int releaseEndedBy(int time,ConcurrentMap<String,ActiveMeeting> meetings){ // O(k log M)
+        int released=0; // meetings dropped
+        while(!minHeap.isEmpty()&&minHeap.peek().end<=time){ // finished meetings
+            ActiveMeeting finished=minHeap.poll(); // earliest end
+            calendars[finished.room].remove(finished);availability.update(finished.room); // free the slot
+            meetings.remove(finished.meetingId,finished); // forget the id
+            released++; // count
+        }
+        return released; // meetings dropped
+    }
+}
+class CampusRoomSystem{ // rooms across buildings, one partition per building and capacity bucket so bookings in different partitions never contend
+    private final Map<String,RoomPartition[]> buildings=new HashMap<>(); // building -> partition per capacity bucket, fixed after construction
+    private final Map<String,RoomPartition> partitionOfRoom=new HashMap<>(); // roomId -> owning partition, fixed after construction
+    private final ConcurrentMap<String,ActiveMeeting> meetings=new ConcurrentHashMap<>(); // meetingId -> booking across every partition
+    public CampusRoomSystem(List<Room> rooms){ // room ids must be unique across buildings, cancellations are routed by them
+        Map<String,List<List<Room>>> grouped=new HashMap<>(); // building -> rooms per bucket
+        Set<String> roomIds=new HashSet<>(); // ids seen so far
+        for(Room room:rooms){ // group rooms
+            if(!roomIds.add(room.roomId))throw new IllegalArgumentException("Duplicate roomId: "+room.roomId); // reject shared ids
+            List<List<Room>> buckets=grouped.computeIfAbsent(room.building,b->new ArrayList<>()); // building buckets
+            int bucket=bucket(room.capacity); // capacity bucket
+            while(buckets.size()<=bucket)buckets.add(new ArrayList<>()); // extend
+            buckets.get(bucket).add(room); // add room
+        }
+        for(Map.Entry<String,List<List<Room>>> building:grouped.entrySet()){ // build partitions
+            List<List<Room>> buckets=building.getValue(); // rooms per bucket
+            RoomPartition[] partitions=new RoomPartition[buckets.size()]; // partition per bucket
+            for(int b=0;b<partitions.length;b++){ // non-empty buckets only
+                if(buckets.get(b).isEmpty())continue; // no rooms of this size
+                partitions[b]=new RoomPartition(buckets.get(b)); // partition
+                for(Room room:buckets.get(b))partitionOfRoom.put(room.roomId,partitions[b]); // owner
+            }
+            buildings.put(building.getKey(),partitions); // store
+        }
+    }
+    static int bucket(int capacity){return 32-Integer.numberOfLeadingZeros(capacity-1);} // 1, 2, 3-4, 5-8, 9-16, ...
+    public String bookMeeting(String meetingId,String building,int attendees,Set<RoomFeature> features,int start,int end){ // smallest room with the features seating everyone, O(B (log R + log M)) typical over B buckets, O(R log M) worst case
+        if(meetings.containsKey(meetingId))return "MeetingId Already Exists"; // check duplicate id
+        if(start>=end)return "Invalid Time Interval"; // validate interval
+        if(attendees<1)return "Invalid Attendees"; // validate size
+        RoomPartition[] partitions=buildings.get(building); // building partitions
+        if(partitions==null)return "Unknown Building"; // no such building
+        int required=RoomFeature.mask(features); // feature bits
+        for(int b=bucket(attendees);b<partitions.length;b++){ // smaller rooms first
+            if(partitions[b]==null)continue; // empty bucket
+            String result=partitions[b].book(meetingId,attendees,required,start,end,meetings); // best fit in the bucket
+            if(result!=null)return result; // booked or duplicate
+        }
+        return "No Rooms Available"; // nothing fits
+    }
+    public String cancelMeeting(String meetingId){ // O(log R + log M), locks only the owning partition
+        ActiveMeeting meeting=meetings.remove(meetingId); // fetch and unmap meeting
+        if(meeting==null)return "Invalid MeetingId"; // handle invalid id
+        if(!partitionOfRoom.get(meeting.roomId).cancel(meeting))return "Invalid MeetingId"; // released as ended before we got the lock
+        return "Meeting Cancelled"; // confirmation
+    }
+    public int releaseEndedBy(int time){ // O(k log M), one partition locked at a time
+        int released=0; // meetings dropped
+        for(RoomPartition[] partitions:buildings.values())for(RoomPartition partition:partitions)if(partition!=null)released+=partition.releaseEndedBy(time,meetings); // every partition
+        return released; // meetings dropped
+    }
+}
+class MeetingStress{ // one booking desk per building books and cancels in parallel, each desk's answers checked against a sequential replay
+    static void run(int roomsPerBuilding,int opsPerThread){
+        cancelAfterRelease(); // regression for the unmap, release, cancel interleaving
+        malformedBatch(); // regression for ids left mapped by a batch that failed half way
+        duplicateRoomIds(); // regression for cancellations routed to the wrong building
+        int maxThreads=Math.max(2,Runtime.getRuntime().availableProcessors()); // up to core count
+        List<Room> rooms=new ArrayList<>(); // campus, one building per desk
+        int[] sizes={2,4,6,8,12,16,20,30}; // capacities
+        for(int b=0;b<maxThreads;b++)for(int r=0;r<roomsPerBuilding;r++)rooms.add(new Room("B"+b+"-R"+r,"B"+b,sizes[r%sizes.length],(r&3)==0?EnumSet.of(RoomFeature.VIDEO):EnumSet.noneOf(RoomFeature.class))); // every fourth room has video
+        List<String> roomIds=new ArrayList<>(); // same rooms without attributes
+        for(Room room:rooms)roomIds.add(room.roomId); // ids only
+        double base=0; // single desk throughput
+        for(int threads=1;threads<=maxThreads;threads*=2){ // double desks each round
+            CampusRoomSystem campus=new CampusRoomSystem(rooms); // partitioned system
+            MeetingRoomSystem locked=new MeetingRoomSystem(roomIds); // single-lock baseline
+            String[][] answers=new String[threads][opsPerThread]; // per desk results
+            long nanos=drive(threads,(desk,i)->answers[desk][i]=step(campus,desk,i,opsPerThread),opsPerThread); // book, sometimes cancel
+            long lockedNanos=drive(threads,(desk,i)->{ // same bookings through one lock
+                int n=desk*opsPerThread+i,start=(int)((n*2654435761L)%(opsPerThread*4L)); // spread over the horizon
+                locked.bookMeeting(desk+"-"+i,start,start+1+i%120); // book
+                if(i%8==7)locked.cancelMeeting(desk+"-"+(i-3)); // cancel an earlier one
+            },opsPerThread);
+            int violations=0; // desks whose answers differ from a sequential run
+            for(int desk=0;desk<threads;desk++){ // replay each desk alone
+                CampusRoomSystem replay=new CampusRoomSystem(rooms); // fresh campus
+                for(int i=0;i<opsPerThread;i++)if(!step(replay,desk,i,opsPerThread).equals(answers[desk][i])){violations++;break;} // buildings never interact
+            }
+            double perSec=(double)threads*opsPerThread*1e9/nanos,lockedPerSec=(double)threads*opsPerThread*1e9/lockedNanos; // throughput
+            if(threads==1)base=perSec; // baseline
+            System.out.printf("desks=%d ops/s=%.0f speedup=%.2f global-lock ops/s=%.0f violations=%d%n",threads,perSec,perSec/base,lockedPerSec,violations); // report
+            if(violations>0)throw new IllegalStateException("Bookings diverged under "+threads+" desks"); // fail loudly
+        }
+    }
+    static void cancelAfterRelease(){ // a cancel that loses the race with releaseEndedBy must not free a newer booking of the same slot
+        ConcurrentMap<String,ActiveMeeting> meetings=new ConcurrentHashMap<>(); // shared id map
+        RoomPartition partition=new RoomPartition(Arrays.asList(new Room("A","B0",4,EnumSet.noneOf(RoomFeature.class)))); // one room
+        partition.book("X",2,0,10,20,meetings); // X holds [10,20)
+        ActiveMeeting x=meetings.remove("X"); // cancelMeeting unmaps X first
+        partition.releaseEndedBy(25,meetings); // then release drops X
+        String z=partition.book("Z",2,0,10,20,meetings); // Z takes the same slot
+        if(partition.cancel(x))throw new IllegalStateException("Stale cancel reported success"); // cancelMeeting now takes the lock
+        String w=partition.book("W",2,0,10,20,meetings); // must not fit
+        if(!"A".equals(z)||w!=null||!meetings.containsKey("Z"))throw new IllegalStateException("Stale cancel freed a newer booking: Z="+z+" W="+w); // fail loudly
+    }
+    static void duplicateRoomIds(){ // two buildings may not share a room id
+        List<Room> rooms=Arrays.asList(new Room("R1","B0",4,EnumSet.noneOf(RoomFeature.class)),new Room("R1","B1",4,EnumSet.noneOf(RoomFeature.class))); // same id twice
+        try{new CampusRoomSystem(rooms);throw new IllegalStateException("Duplicate room ids accepted");}catch(IllegalArgumentException expected){} // must be refused
+    }
+    static void malformedBatch(){ // a rejected batch must leave no trace, its ids stay bookable and its rooms free
+        MeetingRoomSystem system=new MeetingRoomSystem(Arrays.asList("A","B")); // two rooms
+        String[][] ids={{"X","Y"},{"X",null}}; // short arrays, null id
+        int[][] starts={{10},{10,20}}; // second batch well sized
+        for(int t=0;t<ids.length;t++){ // each malformed batch
+            try{system.bookMeetings(ids[t],starts[t],new int[]{20,30});throw new IllegalStateException("Malformed batch accepted");}catch(IllegalArgumentException expected){} // must be refused
+        }
+        if(!"Invalid MeetingId".equals(system.cancelMeeting("X"))||!system.isRoomFree("A",10,20)||!"A".equals(system.bookMeeting("X",10,20)))throw new IllegalStateException("Malformed batch changed the system"); // fail loudly
+    }
+    private static String step(CampusRoomSystem campus,int desk,int i,int opsPerThread){ // one desk operation, deterministic per desk
+        int n=desk*opsPerThread+i,start=(int)((n*2654435761L)%(opsPerThread*4L)); // spread over the horizon
+        String answer=campus.bookMeeting(desk+"-"+i,"B"+desk,1+i%16,(i&3)==0?EnumSet.of(RoomFeature.VIDEO):EnumSet.noneOf(RoomFeature.class),start,start+1+i%120); // book
+        if(i%8==7)answer+="/"+campus.cancelMeeting(desk+"-"+(i-3)); // cancel an earlier one
+        return answer; // combined answer
+    }
+    private static long drive(int threads,BiConsumer<Integer,Integer> op,int opsPerThread){ // nanos for every desk to finish
+        List<Thread> desks=new ArrayList<>(); // desk threads
+        long start=System.nanoTime(); // time before
+        for(int t=0;t<threads;t++){ // start desks
+            final int desk=t; // desk id
+            Thread thread=new Thread(()->{for(int i=0;i<opsPerThread;i++)op.accept(desk,i);}); // fixed work per desk
+            desks.add(thread);thread.start(); // run
+        }
+        for(Thread thread:desks){try{thread.join();}catch(InterruptedException e){Thread.currentThread().interrupt();break;}} // wait for desks
+        return System.nanoTime()-start; // elapsed
+    }
+}
+
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
     }
-    public synchronized void cancelMeeting(String meetingId){ // O(log M)
-        ActiveMeeting meeting=activeMeetings.get(meetingId); // fetch meeting
-        if(meeting==null){System.out.println("Invalid MeetingId");return;} // handle invalid id
-        minHeap.remove(meeting); // remove from heap
-        availableRooms.add(meeting.roomId); // mark room available
-        activeMeetings.remove(meetingId); // remove from map
-        System.out.println("Meeting Cancelled"); // confirmation
+}
+class MeetingRoomBench{ // java MeetingScheduler.java bench [rooms] [activeMeetings] [ops] [importMeetings]
+    static void run(String[] args){
+        int roomCount=Bench.param(args,1,1000); // rooms
+        int active=Math.min(Bench.param(args,2,500),roomCount-1); // meetings running during the ops
+        int ops=Bench.param(args,3,200_000); // ops per pass
+        List<String> roomIds=new ArrayList<>(); // room ids
+        for(int r=0;r<roomCount;r++)roomIds.add(String.format("Room%05d",r)); // name rooms
+        String[] meetingIds=new String[ops]; // pre-built meeting ids
+        for(int i=0;i<ops;i++)meetingIds[i]="M"+i; // name meetings
+        Bench.measure("MeetingRoomSystem bookMeeting",ops,()->{
+            MeetingRoomSystem system=new MeetingRoomSystem(roomIds); // fresh system
+            return i->system.bookMeeting(meetingIds[i],i,i+active); // rolling meetings, about `active` overlap
+        });
+        int[] starts=new int[ops]; // calendar requests scattered over the horizon
+        Random random=new Random(42); // fixed seed
+        for(int i=0;i<ops;i++)starts[i]=random.nextInt(ops); // any time order
+        Bench.measure("MeetingRoomSystem book any order",ops,()->{
+            MeetingRoomSystem system=new MeetingRoomSystem(roomIds); // fresh system
+            return i->system.bookMeeting(meetingIds[i],starts[i],starts[i]+1+(i%(2*active))); // about `active` overlap, booked weeks apart
+        });
+        Bench.measure("MeetingRoomSystem book+cancel",ops,()->{
+            MeetingRoomSystem system=new MeetingRoomSystem(roomIds); // fresh system
+            for(int m=0;m<active;m++)system.bookMeeting("A"+m,0,Integer.MAX_VALUE); // long-running meetings
+            return i->{system.bookMeeting(meetingIds[i],1,2);system.cancelMeeting(meetingIds[i]);}; // book then cancel
+        });
+        Bench.measure("CampusRoomSystem book best fit",ops,()->{
+            List<Room> rooms=new ArrayList<>(); // rooms with attributes
+            for(int r=0;r<roomCount;r++)rooms.add(new Room(roomIds.get(r),"B"+(r&3),2+r%20,(r&7)==0?EnumSet.of(RoomFeature.VIDEO):EnumSet.noneOf(RoomFeature.class))); // four buildings
+            CampusRoomSystem campus=new CampusRoomSystem(rooms); // fresh campus
+            Set<RoomFeature> video=EnumSet.of(RoomFeature.VIDEO),none=EnumSet.noneOf(RoomFeature.class); // requests
+            return i->campus.bookMeeting(meetingIds[i],"B"+(i&3),1+i%12,(i&15)==0?video:none,starts[i],starts[i]+1+(i%(2*active))); // sized requests in any order
+        });
+        int[] victims=new int[ops]; // cancellation order
+        for(int i=0;i<ops;i++)victims[i]=i; // every meeting
+        for(int i=ops-1;i>0;i--){int j=random.nextInt(i+1),t=victims[i];victims[i]=victims[j];victims[j]=t;} // shuffle
+        Bench.measure("MeetingRoomSystem cancel storm",ops,()->{
+            MeetingRoomSystem system=new MeetingRoomSystem(roomIds); // fresh system
+            for(int i=0;i<ops;i++)system.bookMeeting(meetingIds[i],i,i+active); // a long recurring series on the books
+            return i->system.cancelMeeting(meetingIds[victims[i]]); // series cancelled in any order
+        });
+        bulkImport(roomIds,Bench.param(args,4,100_000)); // Sunday night import
+    }
+    static void bulkImport(List<String> roomIds,int count){ // a week of recurring instances, booked one by one in start order versus one batch
+        Random random=new Random(7); // fixed seed
+        String[] ids=new String[count];int[] starts=new int[count],ends=new int[count]; // batch in arbitrary order
+        for(int i=0;i<count;i++){ids[i]="W"+i;starts[i]=random.nextInt(7*24*60);ends[i]=starts[i]+30+random.nextInt(61);} // minutes of the week, 30 to 90 minutes long
+        Integer[] byStart=new Integer[count]; // start order for the one-by-one path
+        for(int i=0;i<count;i++)byStart[i]=i; // positions
+        Arrays.sort(byStart,Comparator.comparingInt(i->starts[i])); // stable
+        long sequentialNanos=0,bulkNanos=0; // best of rounds
+        for(int round=0;round<12;round++){ // first rounds warm the JIT, bulk runs once per round so it needs a few more
+            MeetingRoomSystem one=new MeetingRoomSystem(roomIds),batch=new MeetingRoomSystem(roomIds); // fresh systems
+            String[] expected=new String[count]; // one-by-one answers
+            System.gc(); // neither path pays for the other's garbage
+            long start=System.nanoTime(); // one-by-one start
+            for(int i:byStart)expected[i]=one.bookMeeting(ids[i],starts[i],ends[i]); // lock, heap and index work per meeting
+            long sequential=System.nanoTime()-start; // one-by-one time
+            one=null;System.gc(); // drop the one-by-one system before timing the batch
+            start=System.nanoTime(); // bulk start
+            String[] answers=batch.bookMeetings(ids,starts,ends); // one sort, one sweep, one commit
+            long bulk=System.nanoTime()-start; // bulk time
+            if(!Arrays.equals(expected,answers))throw new IllegalStateException("Bulk assignment differs from sequential booking"); // fail loudly
+            if(round==0||sequential<sequentialNanos)sequentialNanos=sequential;if(round==0||bulk<bulkNanos)bulkNanos=bulk; // best
+        }
+        System.out.printf("%-32s meetings=%,d sequential=%,.1fms bulk=%,.1fms speedup=%.1fx%n","MeetingRoomSystem bulk import",count,sequentialNanos/1e6,bulkNanos/1e6,(double)sequentialNanos/bulkNanos); // report
     }
 }
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){MeetingRoomBench.run(args);return;} // java MeetingScheduler.java bench
+        if(args.length>0&&"stress".equals(args[0])){MeetingStress.run(200,100_000);return;} // java MeetingScheduler.java stress
         List<String> roomIds=Arrays.asList("RoomC","RoomA","RoomB"); // predefined rooms
         MeetingRoomSystem system=new MeetingRoomSystem(roomIds); // initialize system
 
@@ -55,9 +504,13 @@ public class Main{
         String r3=system.bookMeeting("M3",15,25); // overlapping
         System.out.println("M3 assigned to:"+r3); // next room
 
-        system.cancelMeeting("M2"); // cancel one meeting
+        System.out.println(system.cancelMeeting("M2")); // cancel one meeting
 
         String r4=system.bookMeeting("M4",16,19); // should reuse freed room
         System.out.println("M4 assigned to:"+r4); // print room
+
+        System.out.println("M1 rebooked:"+system.bookMeeting("M1",30,40)); // ended meetings keep their ids
+        System.out.println("Released:"+system.releaseEndedBy(30)); // callers forget finished meetings themselves
+        System.out.println("M1 rebooked:"+system.bookMeeting("M1",30,40)); // id free again
     }
 }
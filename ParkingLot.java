@@ -1,4 +1,8 @@
 import java.util.*; // import utility classes
+import java.util.concurrent.*; // import concurrent collections
+import java.util.concurrent.atomic.*; // import atomic primitives
+import java.util.concurrent.locks.*; // import locks
+import java.util.function.*; // import functional interfaces
 enum VehicleType{CAR,BIKE,TRUCK} // define vehicle types
 enum SpotSize{SMALL,MEDIUM,LARGE} // define spot sizes
 class Vehicle{
@@ -17,29 +21,133 @@ class Vehicle{
 class ParkingSpot{
     private int spotId; // unique spot id
     private SpotSize size; // size of the spot
-    private Vehicle vehicle; // vehicle parked in this spot
+    private static final AtomicReferenceFieldUpdater<ParkingSpot,Vehicle> VEHICLE=AtomicReferenceFieldUpdater.newUpdater(ParkingSpot.class,Vehicle.class,"vehicle"); // CAS on vehicle field
+    private static final AtomicLongFieldUpdater<ParkingSpot> TICKET=AtomicLongFieldUpdater.newUpdater(ParkingSpot.class,"ticket"); // CAS on ticket field
+    private volatile Vehicle vehicle; // vehicle parked in this spot
+    private volatile long ticket=Ticket.NONE; // ticket currently valid for this spot
+    private int sequence; // tickets issued for this spot, only touched by the spot holder
+    private ParkingFloor floor; // floor owning this spot
+    private int position; // index of this spot within its floor
+    private SpotListener listener; // free-spot index notified on state change
     public ParkingSpot(int spotId,SpotSize size){this.spotId=spotId;this.size=size;} // constructor
     public boolean isFree(){return vehicle==null;} // check if spot is empty
-    public void park(Vehicle vehicle){this.vehicle=vehicle;} // assign vehicle to spot
-    public void unpark(){this.vehicle=null;} // remove vehicle from spot
+    public void park(Vehicle vehicle){this.vehicle=vehicle;if(listener!=null)listener.onPark(this);} // assign vehicle to spot
+    public void unpark(){this.vehicle=null;if(listener!=null)listener.onUnpark(this);} // remove vehicle from spot
+    public boolean tryPark(Vehicle vehicle){ // claim spot only if still free
+        if(!VEHICLE.compareAndSet(this,null,vehicle))return false; // someone else holds it
+        if(listener!=null)listener.onPark(this); // notify index
+        return true; // claimed
+    }
+    public boolean tryUnpark(Vehicle expected){ // release spot only if held by expected vehicle
+        if(!VEHICLE.compareAndSet(this,expected,null))return false; // not held by this vehicle
+        if(listener!=null)listener.onUnpark(this); // notify index
+        return true; // released
+    }
+    public Vehicle getVehicle(){return vehicle;} // return parked vehicle
+    public long getTicket(){return ticket;} // return current ticket
+    long issueTicket(){ // caller must hold the spot
+        long id=Ticket.pack(floor.getLotIndex(),position,++sequence); // floor, spot and per-spot sequence
+        ticket=id; // publish ticket
+        return id; // return ticket
+    }
+    boolean redeemTicket(long id){return TICKET.compareAndSet(this,id,Ticket.NONE);} // invalidate ticket exactly once
     public SpotSize getSize(){return size;} // return size of spot
     public int getSpotId(){return spotId;} // return spot id
+    public ParkingFloor getFloor(){return floor;} // return owning floor
+    public int getPosition(){return position;} // return index within floor
+    void placeOn(ParkingFloor floor,int position){this.floor=floor;this.position=position;} // record owning floor and index
+    void setListener(SpotListener listener){this.listener=listener;} // attach free-spot index
 }
 class ParkingFloor{
     private int floorNumber; // floor identifier
     private List<ParkingSpot> spots; // list of spots on floor
-    public ParkingFloor(int floorNumber,List<ParkingSpot> spots){this.floorNumber=floorNumber;this.spots=spots;} // constructor
+    private int lotIndex; // position of this floor in its lot
+    public ParkingFloor(int floorNumber,List<ParkingSpot> spots){
+        this.floorNumber=floorNumber; // assign floor number
+        this.spots=spots; // assign spots
+        for(int i=0;i<spots.size();i++)spots.get(i).placeOn(this,i); // let each spot know its floor and index
+    }
     public int getFloorNumber(){return floorNumber;} // return floor number
     public List<ParkingSpot> getSpots(){return spots;} // return spots list
+    public int getLotIndex(){return lotIndex;} // return position in lot
+    void setLotIndex(int lotIndex){this.lotIndex=lotIndex;} // assigned by the owning lot
 }
-class Ticket{
-    private String ticketId; // unique ticket id
-    private ParkingSpot spot; // allocated parking spot
-    private int floorNumber; // floor number where vehicle parked
-    public Ticket(String ticketId,ParkingSpot spot,int floorNumber){this.ticketId=ticketId;this.spot=spot;this.floorNumber=floorNumber;} // constructor
-    public String getTicketId(){return ticketId;} // return ticket id
-    public ParkingSpot getSpot(){return spot;} // return allocated spot
-    public int getFloorNumber(){return floorNumber;} // return floor number
+final class Ticket{ // ticket id packed as floor(16) | spot(24) | sequence(23) in a long
+    static final long NONE=-1L; // no ticket issued
+    static final int FLOOR_BITS=16; // max 65536 floors
+    static final int SPOT_BITS=24; // max 16M spots per floor
+    static final int SEQUENCE_BITS=23; // ids for a spot repeat after 8M parks
+    private Ticket(){} // static helpers only
+    static long pack(int floorIndex,int position,int sequence){ // O(1)
+        return ((long)floorIndex<<(SPOT_BITS+SEQUENCE_BITS))|((long)position<<SEQUENCE_BITS)|(sequence&((1L<<SEQUENCE_BITS)-1)); // non-negative
+    }
+    static int floorIndex(long id){return (int)(id>>>(SPOT_BITS+SEQUENCE_BITS));} // extract floor
+    static int position(long id){return (int)((id>>>SEQUENCE_BITS)&((1L<<SPOT_BITS)-1));} // extract spot
+    static String encode(long id){return Long.toString(id,36);} // external String form
+    static long decode(String ticketId){ // inverse of encode, NONE if malformed
+        if(ticketId==null||ticketId.isEmpty()||ticketId.length()>13)return NONE; // 13 base-36 digits hold 63 bits
+        long id=0; // accumulated value
+        for(int i=0;i<ticketId.length();i++){ // parse digits
+            char c=ticketId.charAt(i); // next char
+            int digit=c>='0'&&c<='9'?c-'0':c>='a'&&c<='z'?c-'a'+10:-1; // lowercase ASCII only, as encode writes
+            if(digit<0||id>(Long.MAX_VALUE-digit)/36)return NONE; // invalid char or past 63 bits
+            id=id*36+digit; // accumulate
+        }
+        return id; // non-negative
+    }
+    static ParkingSpot resolve(List<ParkingFloor> floors,long id){ // O(1), no lookup table
+        if(id<0)return null; // no ticket
+        int floorIndex=floorIndex(id); // floor part
+        if(floorIndex>=floors.size())return null; // unknown floor
+        List<ParkingSpot> spots=floors.get(floorIndex).getSpots(); // floor spots
+        int position=position(id); // spot part
+        if(position>=spots.size())return null; // unknown spot
+        ParkingSpot spot=spots.get(position); // candidate spot
+        return spot.getTicket()==id?spot:null; // stale or forged tickets do not match
+    }
+    static void checkLimits(List<ParkingFloor> floors){ // reject lots that do not fit the id layout
+        if(floors.size()>1<<FLOOR_BITS)throw new IllegalArgumentException("Too many floors:"+floors.size()); // floor overflow
+        for(int i=0;i<floors.size();i++){ // validate and number floors
+            if(floors.get(i).getSpots().size()>1<<SPOT_BITS)throw new IllegalArgumentException("Too many spots on floor "+floors.get(i).getFloorNumber()); // spot overflow
+            floors.get(i).setLotIndex(i); // position used in ticket ids
+        }
+    }
+}
+class FreeSpotSet{ // sorted set of ints in [0,capacity) as a 64-ary bit tree, no allocation after construction
+    private final long[][] levels; // levels[0] holds one bit per value, each level above summarises non-empty words
+    public FreeSpotSet(int capacity){
+        List<long[]> list=new ArrayList<>(); // levels bottom-up
+        int words=Math.max(1,(capacity+63)>>>6); // leaf words
+        while(true){list.add(new long[words]);if(words==1)break;words=(words+63)>>>6;} // add summary levels
+        this.levels=list.toArray(new long[0][]); // freeze levels
+    }
+    public boolean isEmpty(){return levels[levels.length-1][0]==0;} // top word summarises everything
+    public boolean contains(int value){return (levels[0][value>>>6]&(1L<<value))!=0;} // leaf bit
+    public boolean add(int value){ // O(log64 N)
+        if(contains(value))return false; // already present
+        for(long[] level:levels){ // set bit upward while words were empty
+            boolean wasEmpty=level[value>>>6]==0; // word state before
+            level[value>>>6]|=1L<<value; // set bit
+            if(!wasEmpty)break; // summaries already set
+            value>>>=6; // move to parent word
+        }
+        return true; // added
+    }
+    public boolean remove(int value){ // O(log64 N)
+        if(!contains(value))return false; // absent
+        for(long[] level:levels){ // clear bit upward while words become empty
+            level[value>>>6]&=~(1L<<value); // clear bit
+            if(level[value>>>6]!=0)break; // word still non-empty
+            value>>>=6; // move to parent word
+        }
+        return true; // removed
+    }
+    public int first(){ // O(log64 N), -1 if empty
+        if(isEmpty())return -1; // nothing set
+        int index=0; // word index at current level
+        for(int l=levels.length-1;l>=0;l--)index=(index<<6)+Long.numberOfTrailingZeros(levels[l][index]); // descend to lowest set bit
+        return index; // lowest value
+    }
 }
 interface SlotAllocationStrategy{
     ParkingSpot allocate(List<ParkingFloor> floors,Vehicle vehicle); // allocation method
@@ -55,42 +163,291 @@ class FirstFitStrategy implements SlotAllocationStrategy{
         return null; // return null if no spot found
     }
 }
+interface SpotListener{
+    void onPark(ParkingSpot spot); // spot became occupied
+    void onUnpark(ParkingSpot spot); // spot became free
+}
+class FloorSpotIndex implements SpotListener{ // free spots of one floor grouped by size
+    private final IndexedFitStrategy owner; // strategy holding the floor-level index
+    private final ParkingFloor floor; // indexed floor
+    private final int floorIndex; // position of floor in the lot
+    private final EnumMap<SpotSize,FreeSpotSet> free; // free spot positions per size
+    public FloorSpotIndex(IndexedFitStrategy owner,ParkingFloor floor,int floorIndex){
+        this.owner=owner; // assign owner
+        this.floor=floor; // assign floor
+        this.floorIndex=floorIndex; // assign floor index
+        this.free=new EnumMap<>(SpotSize.class); // init per-size sets
+        for(SpotSize size:SpotSize.values())free.put(size,new FreeSpotSet(floor.getSpots().size())); // one sorted set per size
+    }
+    public ParkingSpot first(SpotSize size){ // O(log S)
+        FreeSpotSet set=free.get(size); // free positions of this size
+        return set.isEmpty()?null:floor.getSpots().get(set.first()); // lowest position matches first-fit order
+    }
+    public void onPark(ParkingSpot spot){ // O(log S)
+        FreeSpotSet set=free.get(spot.getSize()); // set for spot size
+        if(set.remove(spot.getPosition())&&set.isEmpty())owner.floorFull(spot.getSize(),floorIndex); // floor ran out of this size
+    }
+    public void onUnpark(ParkingSpot spot){ // O(log S)
+        FreeSpotSet set=free.get(spot.getSize()); // set for spot size
+        boolean wasEmpty=set.isEmpty(); // remember previous state
+        if(set.add(spot.getPosition())&&wasEmpty)owner.floorFreed(spot.getSize(),floorIndex); // floor has this size again
+    }
+}
+class IndexedFitStrategy implements SlotAllocationStrategy{ // same spot as FirstFitStrategy in O(log F + log S)
+    private final List<FloorSpotIndex> floorIndexes; // per floor free-spot index
+    private final EnumMap<SpotSize,FreeSpotSet> floorsWithFree; // floors having a free spot of each size
+    public IndexedFitStrategy(List<ParkingFloor> floors){ // O(F × S log S)
+        this.floorIndexes=new ArrayList<>(); // init floor indexes
+        this.floorsWithFree=new EnumMap<>(SpotSize.class); // init floor-level index
+        for(SpotSize size:SpotSize.values())floorsWithFree.put(size,new FreeSpotSet(floors.size())); // one sorted set per size
+        for(int f=0;f<floors.size();f++){ // iterate floors
+            FloorSpotIndex index=new FloorSpotIndex(this,floors.get(f),f); // create floor index
+            floorIndexes.add(index); // store it
+            for(ParkingSpot spot:floors.get(f).getSpots()){ // iterate spots
+                spot.setListener(index); // keep index in sync with park/unpark
+                if(spot.isFree())index.onUnpark(spot); // seed currently free spots
+            }
+        }
+    }
+    public ParkingSpot allocate(List<ParkingFloor> floors,Vehicle vehicle){ // O(log F + log S), floors must be the list this index was built for
+        FreeSpotSet candidates=floorsWithFree.get(vehicle.getRequiredSize()); // floors with a free matching spot
+        if(candidates.isEmpty())return null; // no spot anywhere
+        return floorIndexes.get(candidates.first()).first(vehicle.getRequiredSize()); // lowest floor then lowest spot
+    }
+    void floorFull(SpotSize size,int floorIndex){floorsWithFree.get(size).remove(floorIndex);} // drop floor from size index
+    void floorFreed(SpotSize size,int floorIndex){floorsWithFree.get(size).add(floorIndex);} // add floor back to size index
+}
 class ParkingLot{
     private List<ParkingFloor> floors; // list of floors
-    private Map<String,Ticket> activeTickets; // map of active tickets
     private SlotAllocationStrategy strategy; // allocation strategy
     public ParkingLot(List<ParkingFloor> floors){
+        this(floors,new IndexedFitStrategy(floors)); // default to indexed first-fit
+    }
+    public ParkingLot(List<ParkingFloor> floors,SlotAllocationStrategy strategy){
+        Ticket.checkLimits(floors); // number floors for ticket ids
         this.floors=floors; // initialize floors
-        this.activeTickets=new HashMap<>(); // initialize ticket map
-        this.strategy=new FirstFitStrategy(); // set default strategy
+        this.strategy=strategy; // set strategy
     }
-    public synchronized String park(Vehicle vehicle){ // O(F × S)
+    public synchronized String park(Vehicle vehicle){ // O(log F + log S) with IndexedFitStrategy
+        long ticket=parkTicket(vehicle); // allocation-free path
+        if(ticket==Ticket.NONE)return "Parking Full"; // return message if no spot available
+        return Ticket.encode(ticket); // external String form of ticket
+    }
+    public synchronized long parkTicket(Vehicle vehicle){ // O(log F + log S), allocates nothing
         ParkingSpot spot=strategy.allocate(floors,vehicle); // allocate spot based on strategy
-        if(spot==null)return "Parking Full"; // return message if no spot available
+        if(spot==null)return Ticket.NONE; // no spot available
         spot.park(vehicle); // assign vehicle to spot
-        int floorNumber=findFloorNumber(spot); // determine floor number
-        String ticketId=UUID.randomUUID().toString(); // generate unique ticket id
-        Ticket ticket=new Ticket(ticketId,spot,floorNumber); // create ticket object
-        activeTickets.put(ticketId,ticket); // store ticket
-        return ticketId; // return generated ticket id
+        return spot.issueTicket(); // ticket encodes floor and spot
     }
     public synchronized void unpark(String ticketId){ // O(1)
-        Ticket ticket=activeTickets.get(ticketId); // fetch ticket
-        if(ticket==null){System.out.println("Invalid Ticket");return;} // handle invalid case
-        ticket.getSpot().unpark(); // free the spot
-        activeTickets.remove(ticketId); // remove ticket from map
+        if(!unparkTicket(Ticket.decode(ticketId))){System.out.println("Invalid Ticket");return;} // handle invalid case
         System.out.println("Unparked Successfully"); // confirmation
     }
-    private int findFloorNumber(ParkingSpot spot){ // helper method to find floor of spot
-        for(ParkingFloor floor:floors){ // iterate floors
-            if(floor.getSpots().contains(spot))return floor.getFloorNumber(); // return floor number if spot found
+    public synchronized boolean unparkTicket(long ticket){ // O(1), allocates nothing
+        ParkingSpot spot=Ticket.resolve(floors,ticket); // ticket points straight at its spot
+        if(spot==null||!spot.redeemTicket(ticket))return false; // invalid or already used
+        spot.unpark(); // free the spot
+        return true; // success
+    }
+    public synchronized int getFloorNumber(long ticket){ // O(1)
+        ParkingSpot spot=Ticket.resolve(floors,ticket); // resolve spot
+        return spot==null?-1:spot.getFloor().getFloorNumber(); // spot knows its floor
+    }
+}
+class FloorStripe{ // lock stripe guarding the free spots of one floor
+    final ReentrantLock lock=new ReentrantLock(); // per-floor lock
+    final EnumMap<SpotSize,ArrayDeque<ParkingSpot>> free=new EnumMap<>(SpotSize.class); // free spots per size
+    final AtomicIntegerArray freeCount=new AtomicIntegerArray(SpotSize.values().length); // lock-free hint to skip full floors
+    public FloorStripe(ParkingFloor floor){
+        for(SpotSize size:SpotSize.values())free.put(size,new ArrayDeque<>()); // one deque per size
+        for(ParkingSpot spot:floor.getSpots()){ // seed free spots
+            if(!spot.isFree())continue; // skip occupied
+            free.get(spot.getSize()).addLast(spot); // add to matching deque
+            freeCount.incrementAndGet(spot.getSize().ordinal()); // count it
         }
-        return -1; // fallback
+    }
+    public ParkingSpot poll(SpotSize size){ // O(1)
+        if(freeCount.get(size.ordinal())==0)return null; // floor full for this size
+        lock.lock(); // enter stripe
+        try{
+            ParkingSpot spot=free.get(size).pollFirst(); // take a free spot
+            if(spot!=null)freeCount.decrementAndGet(size.ordinal()); // update hint
+            return spot; // may be null if raced
+        }finally{lock.unlock();} // leave stripe
+    }
+    public void release(ParkingSpot spot){ // O(1)
+        lock.lock(); // enter stripe
+        try{
+            free.get(spot.getSize()).addFirst(spot); // return spot to pool
+            freeCount.incrementAndGet(spot.getSize().ordinal()); // update hint
+        }finally{lock.unlock();} // leave stripe
+    }
+}
+class ConcurrentParkingLot{ // gates on different floors never share a lock
+    private final List<ParkingFloor> floors; // list of floors
+    private final FloorStripe[] stripes; // one stripe per floor, indexed like floors
+    public ConcurrentParkingLot(List<ParkingFloor> floors){
+        Ticket.checkLimits(floors); // number floors for ticket ids
+        this.floors=floors; // initialize floors
+        this.stripes=new FloorStripe[floors.size()]; // allocate stripes
+        for(int i=0;i<floors.size();i++)stripes[i]=new FloorStripe(floors.get(i)); // stripe for floor
+    }
+    public String park(Vehicle vehicle){ // O(F) worst case, O(1) when home floor has space
+        return park(vehicle,(int)(Thread.currentThread().getId()%stripes.length)); // spread gates across floors
+    }
+    public String park(Vehicle vehicle,int homeFloor){ // start search at the gate's own floor
+        long ticket=parkTicket(vehicle,homeFloor); // allocation-free path
+        return ticket==Ticket.NONE?"Parking Full":Ticket.encode(ticket); // external String form
+    }
+    public long parkTicket(Vehicle vehicle,int homeFloor){ // allocates nothing, any int is a valid gate floor
+        SpotSize size=vehicle.getRequiredSize(); // required size
+        int home=Math.floorMod(homeFloor,stripes.length); // negative or large gate numbers wrap onto a floor
+        for(int i=0;i<stripes.length;i++){ // probe floors starting from home
+            FloorStripe stripe=stripes[(home+i)%stripes.length]; // next stripe
+            ParkingSpot spot=stripe.poll(size); // try to take a spot
+            if(spot==null)continue; // floor full, move on
+            if(!spot.tryPark(vehicle))throw new IllegalStateException("Spot "+spot.getSpotId()+" double-assigned"); // invariant guard
+            return spot.issueTicket(); // ticket encodes floor and spot
+        }
+        return Ticket.NONE; // no spot on any floor
+    }
+    public boolean unpark(String ticketId){ // O(1)
+        return unparkTicket(Ticket.decode(ticketId)); // decode external form
+    }
+    public boolean unparkTicket(long ticket){ // O(1), allocates nothing
+        ParkingSpot spot=Ticket.resolve(floors,ticket); // ticket points straight at its spot
+        if(spot==null||!spot.redeemTicket(ticket))return false; // invalid or already used
+        spot.unpark(); // free the spot before it becomes visible again
+        stripes[Ticket.floorIndex(ticket)].release(spot); // hand spot back to its floor
+        return true; // success
+    }
+    public ParkingSpot getSpot(long ticket){return Ticket.resolve(floors,ticket);} // O(1)
+}
+class ParkingStress{ // drives many gates in parallel against ConcurrentParkingLot
+    private static void outOfRangeHomeFloors(){ // every gate number parks somewhere while spots remain
+        ConcurrentParkingLot lot=new ConcurrentParkingLot(ParkingBench.buildFloors(3,4)); // small lot
+        Vehicle vehicle=new Vehicle("G",VehicleType.BIKE); // any vehicle
+        for(int homeFloor:new int[]{-1,-4,Integer.MIN_VALUE,Integer.MAX_VALUE,7}){ // below, far below, far above and above the floors
+            long ticket=lot.parkTicket(vehicle,homeFloor); // must not throw
+            if(ticket==Ticket.NONE||!lot.unparkTicket(ticket))throw new IllegalStateException("Gate floor "+homeFloor+" could not park"); // fail loudly
+        }
+    }
+    private static void malformedTickets(){ // foreign digits and overflowing ids must not decode
+        String max=Ticket.encode(Long.MAX_VALUE); // largest valid id
+        if(Ticket.decode(max)!=Long.MAX_VALUE||Ticket.decode(Ticket.encode(0))!=0)throw new IllegalStateException("Valid ticket rejected"); // bounds round-trip
+        for(String id:new String[]{"zzzzzzzzzzzzz","1y2p0ij32e8e8","\u0661\u0662","\uff11","A","-1",""}){ // past 63 bits, non-ASCII digits, uppercase, sign, empty
+            if(Ticket.decode(id)!=Ticket.NONE)throw new IllegalStateException("Malformed ticket decoded:"+id); // fail loudly
+        }
+    }
+    static void run(int floorCount,int spotsPerFloor,long millis){
+        malformedTickets(); // regression for ids that decoded to someone else's ticket
+        outOfRangeHomeFloors(); // regression for negative gate floors indexing before the stripes
+        int maxThreads=Math.max(2,Runtime.getRuntime().availableProcessors()); // up to core count
+        double base=0; // single gate throughput
+        for(int threads=1;threads<=maxThreads;threads*=2){ // double gates each round
+            ConcurrentParkingLot lot=new ConcurrentParkingLot(ParkingBench.buildFloors(floorCount,spotsPerFloor)); // fresh lot under test
+            AtomicIntegerArray holders=new AtomicIntegerArray(floorCount*spotsPerFloor); // vehicles per spot seen by gates
+            AtomicLong ops=new AtomicLong(); // completed park+unpark pairs
+            AtomicInteger violations=new AtomicInteger(); // double assignments observed
+            long deadline=System.nanoTime()+millis*1_000_000L; // stop time
+            List<Thread> gates=new ArrayList<>(); // gate threads
+            for(int t=0;t<threads;t++){ // start gates
+                final int gate=t; // gate id
+                Thread thread=new Thread(()->{
+                    ArrayDeque<Long> held=new ArrayDeque<>(); // tickets this gate holds
+                    Vehicle[] vehicles={new Vehicle("B"+gate,VehicleType.BIKE),new Vehicle("C"+gate,VehicleType.CAR),new Vehicle("T"+gate,VehicleType.TRUCK)}; // one per type
+                    long done=0; // local counter
+                    int i=0; // vehicle selector
+                    while(System.nanoTime()<deadline){ // run until deadline
+                        long ticket=lot.parkTicket(vehicles[i++%3],gate%floorCount); // park from gate's floor
+                        if(ticket!=Ticket.NONE){ // got a spot
+                            ParkingSpot spot=lot.getSpot(ticket); // spot behind ticket
+                            if(holders.incrementAndGet(spot.getSpotId())!=1)violations.incrementAndGet(); // someone else already there
+                            held.addLast(ticket); // keep it for a while
+                        }
+                        if(held.size()>spotsPerFloor/4||(held.size()>0&&ticket==Ticket.NONE)){ // leave with oldest car
+                            long oldest=held.pollFirst(); // oldest ticket
+                            holders.decrementAndGet(lot.getSpot(oldest).getSpotId()); // release before unpark
+                            if(!lot.unparkTicket(oldest))violations.incrementAndGet(); // ticket must be valid
+                            done++; // one round trip
+                        }
+                    }
+                    ops.addAndGet(done); // publish count
+                });
+                gates.add(thread); // keep handle
+                thread.start(); // launch
+            }
+            for(Thread thread:gates){try{thread.join();}catch(InterruptedException e){Thread.currentThread().interrupt();return;}} // wait for gates
+            double perSec=ops.get()*1000.0/millis; // throughput
+            if(threads==1)base=perSec; // baseline
+            System.out.printf("gates=%d ops/s=%.0f speedup=%.2f violations=%d%n",threads,perSec,perSec/base,violations.get()); // report
+            if(violations.get()>0)throw new IllegalStateException("Spot double-assigned under "+threads+" gates"); // fail loudly
+        }
+    }
+}
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
+    }
+}
+class ParkingBench{ // java ParkingLot.java bench [floors] [spotsPerFloor] [ops]
+    static List<ParkingFloor> buildFloors(int floorCount,int spotsPerFloor){ // floors with sizes cycling small/medium/large
+        List<ParkingFloor> floors=new ArrayList<>(); // floors of the lot
+        for(int f=0;f<floorCount;f++){ // build floors
+            List<ParkingSpot> spots=new ArrayList<>(); // spots of floor
+            for(int s=0;s<spotsPerFloor;s++)spots.add(new ParkingSpot(f*spotsPerFloor+s,SpotSize.values()[s%3])); // mixed sizes
+            floors.add(new ParkingFloor(f,spots)); // add floor
+        }
+        return floors; // return floors
+    }
+    static void run(String[] args){
+        int floorCount=Bench.param(args,1,20); // floors per lot
+        int spotsPerFloor=Bench.param(args,2,1000); // spots per floor
+        int ops=Bench.param(args,3,200_000); // ops per pass
+        Vehicle[] vehicles={new Vehicle("B",VehicleType.BIKE),new Vehicle("C",VehicleType.CAR),new Vehicle("T",VehicleType.TRUCK)}; // one per type
+        int prefill=floorCount*spotsPerFloor*9/10; // park 90% before measuring
+        Bench.measure("ParkingLot park+unpark",ops,()->{
+            ParkingLot lot=new ParkingLot(buildFloors(floorCount,spotsPerFloor)); // fresh lot
+            for(int i=0;i<prefill;i++)lot.parkTicket(vehicles[i%3]); // fill to 90%
+            return i->lot.unparkTicket(lot.parkTicket(vehicles[i%3])); // park then leave
+        });
+        Bench.measure("ParkingLot park+unpark String",ops,()->{
+            ParkingLot lot=new ParkingLot(buildFloors(floorCount,spotsPerFloor)); // fresh lot
+            for(int i=0;i<prefill;i++)lot.parkTicket(vehicles[i%3]); // fill to 90%
+            return i->lot.unpark(lot.park(vehicles[i%3])); // park then leave via String tickets
+        });
+        Bench.measure("ConcurrentParkingLot park+unpark",ops,()->{
+            ConcurrentParkingLot lot=new ConcurrentParkingLot(buildFloors(floorCount,spotsPerFloor)); // fresh lot
+            for(int i=0;i<prefill;i++)lot.parkTicket(vehicles[i%3],i%floorCount); // fill to 90%
+            return i->lot.unparkTicket(lot.parkTicket(vehicles[i%3],i%floorCount)); // park then leave
+        });
     }
 }
 
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){ParkingBench.run(args);return;} // java ParkingLot.java bench
+        if(args.length>0&&"stress".equals(args[0])){ParkingStress.run(8,2000,2000);return;} // java ParkingLot.java stress
         List<ParkingFloor> floors=new ArrayList<>(); // create list of floors
         List<ParkingSpot> floor1Spots=new ArrayList<>(); // create floor1 spots
         floor1Spots.add(new ParkingSpot(1,SpotSize.SMALL)); // add small spot
@@ -1,4 +1,5 @@
 import java.util.*; // import utilities
+import java.util.function.*; // import functional interfaces
 interface Command{
     void execute(); // apply operation
     void undo(); // revert operation
@@ -77,8 +78,66 @@ class TextEditor{
         }
     }
 }
+class Bench{ // micro-benchmark harness reporting throughput, latency percentiles and allocation per op
+    static int param(String[] args,int index,int fallback){return args.length>index?Integer.parseInt(args[index]):fallback;} // size from command line
+    static void measure(String name,int ops,Supplier<IntConsumer> fixture){ // fixture builds fresh state and returns the op
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean(); // per-thread allocation counter
+        long threadId=Thread.currentThread().getId(); // measuring thread
+        java.io.PrintStream out=System.out; // keep console for the report
+        System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream())); // silence service logging while measuring
+        long elapsed=0,bytes=0; // throughput and allocation of the timed pass
+        long[] latency=new long[ops]; // per-op latency of the sampled pass
+        try{
+            IntConsumer op=fixture.get(); // warm-up pass
+            for(int i=0;i<ops;i++)op.accept(i); // let the JIT compile the hot path
+            op=fixture.get(); // timed pass
+            bytes=threads.getThreadAllocatedBytes(threadId); // allocation before
+            long start=System.nanoTime(); // time before
+            for(int i=0;i<ops;i++)op.accept(i); // run ops back to back
+            elapsed=System.nanoTime()-start; // time after
+            bytes=threads.getThreadAllocatedBytes(threadId)-bytes; // allocation after
+            op=fixture.get(); // sampled pass
+            for(int i=0;i<ops;i++){long t=System.nanoTime();op.accept(i);latency[i]=System.nanoTime()-t;} // time each op
+        }finally{System.setOut(out);} // restore console
+        Arrays.sort(latency); // order for percentiles
+        out.printf("%-32s ops/s=%,13.0f p50=%,8dns p99=%,9dns p99.9=%,10dns alloc=%,9.1fB/op%n",name,ops*1e9/elapsed,latency[ops/2],latency[(int)(ops*0.99)],latency[(int)(ops*0.999)],(double)bytes/ops); // report
+    }
+}
+class TextEditorBench{ // java TextEditorUndoRedo.java bench [documentLength] [undoDepth] [ops]
+    static void run(String[] args){
+        int length=Bench.param(args,1,100_000); // characters in the row
+        int depth=Bench.param(args,2,10_000); // commands already on the undo stack
+        int ops=Bench.param(args,3,200_000); // ops per pass
+        char[] chars=new char[length]; // document content
+        Arrays.fill(chars,'a'); // filler text
+        String document=new String(chars); // initial row
+        Supplier<TextEditor> editing=()->{ // editor with a long row and deep history
+            TextEditor editor=new TextEditor(); // fresh editor
+            editor.addText(0,0,document); // load document
+            for(int i=0;i<depth;i++)editor.addText(0,(i*7919)%length,"x"); // build history
+            return editor; // return editor
+        };
+        Bench.measure("TextEditor addText middle",ops,()->{
+            TextEditor editor=editing.get(); // fresh editor
+            return i->editor.addText(0,length/2,"abc"); // insert mid-row
+        });
+        Bench.measure("TextEditor delete+undo",ops,()->{
+            TextEditor editor=editing.get(); // fresh editor
+            return i->{editor.deleteText(0,length/2,3);editor.undo();}; // delete then restore
+        });
+        Bench.measure("TextEditor undo+redo",ops,()->{
+            TextEditor editor=editing.get(); // fresh editor
+            return i->{editor.undo();editor.redo();}; // walk history
+        });
+        Bench.measure("TextEditor readLine",ops,()->{
+            TextEditor editor=editing.get(); // fresh editor
+            return i->editor.readLine(0); // read row
+        });
+    }
+}
 public class Main{
     public static void main(String[] args){
+        if(args.length>0&&"bench".equals(args[0])){TextEditorBench.run(args);return;} // java TextEditorUndoRedo.java bench
         TextEditor editor=new TextEditor(); // create editor
         editor.addText(0,0,"Hello"); // add text
         editor.addText(0,5," World"); // append